@@ -0,0 +1,182 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.Car;
+import cz.muni.fi.pv168.Customer;
+import cz.muni.fi.pv168.HibernateSessionFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HexFormat;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.hibernate.SessionFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * PostgreSQL database the benchmarks run against, one per benchmark JVM.
+ * A PostgreSQL container is started with Testcontainers, unless benchmark.jdbc.url points to a scratch
+ * database, e.g. the one from docker-compose.yml. Seeding empties the tables of that database.
+ *
+ * The data set of a given size is always the same:
+ * <ul>
+ *     <li>rows customers, the first rows / 10 of them renting,</li>
+ *     <li>rows cars, every car with an even index rented and the odd ones available,</li>
+ *     <li>one current rent per rented car, so every renting customer has 5 cars.</li>
+ * </ul>
+ * Keys are derived from the index, see {@link #carId(int)}, so benchmarks pick rows without querying for them.
+ */
+final class BenchmarkDatabase {
+
+    static final String JDBC_URL = "benchmark.jdbc.url";
+    static final String USERNAME = "benchmark.jdbc.username";
+    static final String PASSWORD = "benchmark.jdbc.password";
+
+    /** Pinned so that results of different runs are comparable. */
+    static final String IMAGE = "postgres:16.2-alpine";
+
+    /** Every renting customer has this many cars. */
+    static final int CARS_PER_RENTER = 5;
+
+    private static final Logger MANAGER_LOGGER = Logger.getLogger("cz.muni.fi.pv168");
+
+    private static PostgreSQLContainer<?> container;
+    private static boolean connected;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Points Hibernate to the benchmark database and fills it with the data set of the given size.
+     *
+     * @param rows number of cars and of customers
+     * @return the session factory of the seeded database
+     */
+    static synchronized SessionFactory seed(int rows) {
+        if (rows < 2 * CARS_PER_RENTER) {
+            throw new IllegalArgumentException("Data set needs at least " + 2 * CARS_PER_RENTER + " rows");
+        }
+        connect();
+        SessionFactory sessionFactory = HibernateSessionFactory.getSessionFactory();
+        long start = System.nanoTime();
+        try (var session = sessionFactory.openSession()) {
+            session.doWork(connection -> {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("TRUNCATE rents, cars, customers");
+                }
+                insert(connection, "INSERT INTO customers (id, first_name, last_name, address, phone_number, drivers_license, status) "
+                        + "SELECT md5('customer-' || i)::uuid, 'First' || i, 'Last' || i, 'Street ' || i, '+420 ' || i, "
+                        + "'L' || i, i < ? FROM generate_series(0, ? - 1) i", renters(rows), rows);
+                insert(connection, "INSERT INTO cars (id, color, model, payment, license_plate, status) "
+                        + "SELECT md5('car-' || i)::uuid, 'Black', 'Model ' || i % 50, 100 + i % 400, 'S' || i, i % 2 = 1 "
+                        + "FROM generate_series(0, ? - 1) i", rows);
+                insert(connection, "INSERT INTO rents (id, car, customer, rent_date, due_date) "
+                        + "SELECT md5('rent-' || i)::uuid, md5('car-' || i)::uuid, md5('customer-' || (i / 2) % ?)::uuid, "
+                        + "current_date - 1, current_date + 7 FROM generate_series(0, ? - 1, 2) i", renters(rows), rows);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ANALYZE rents, cars, customers");
+                }
+                connection.setAutoCommit(autoCommit);
+            });
+        }
+        sessionFactory.getCache().evictAllRegions();
+        logger.log(Level.INFO, "Seeded " + rows + " rows in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return sessionFactory;
+    }
+
+    /**
+     * Opens a plain JDBC connection to the benchmark database, outside Hibernate and its pool, for the
+     * benchmarks that compare schemas in scratch tables of their own.
+     */
+    static Connection openConnection() throws SQLException {
+        synchronized (BenchmarkDatabase.class) {
+            connect();
+        }
+        return DriverManager.getConnection(System.getProperty("hibernate.connection.url"),
+                System.getProperty("hibernate.connection.username"), System.getProperty("hibernate.connection.password"));
+    }
+
+    static int renters(int rows) {
+        return rows / (2 * CARS_PER_RENTER);
+    }
+
+    /**
+     * Key of the car with the given index, the same as md5('car-' || index)::uuid in PostgreSQL.
+     */
+    static String carId(int index) {
+        return key("car-" + index);
+    }
+
+    static String customerId(int index) {
+        return key("customer-" + index);
+    }
+
+    /**
+     * The seeded car with the given index, without loading it.
+     */
+    static Car car(int index) {
+        return new Car(carId(index), "Model " + index % 50, "Black", index % 2 == 1, 100.0 + index % 400, "S" + index);
+    }
+
+    /**
+     * The seeded customer with the given index, without loading it.
+     */
+    static Customer customer(int index, int rows) {
+        return new Customer(customerId(index), "First" + index, "Last" + index, "Street " + index, "+420 " + index,
+                "L" + index, index < renters(rows));
+    }
+
+    private static void insert(Connection connection, String sql, int... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setInt(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private static String key(String text) {
+        try {
+            String hex = HexFormat.of().formatHex(
+                    MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8)));
+            return hex.substring(0, 8) + "-" + hex.substring(8, 12) + "-" + hex.substring(12, 16) + "-"
+                    + hex.substring(16, 20) + "-" + hex.substring(20);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 is not available", ex);
+        }
+    }
+
+    private static void connect() {
+        if (connected || HibernateSessionFactory.isInitialized()) {
+            return;
+        }
+        connected = true;
+        // Per-call INFO logging of the managers would dominate the measured time
+        MANAGER_LOGGER.setLevel(Level.WARNING);
+        logger.setLevel(Level.INFO);
+        String url = System.getProperty(JDBC_URL);
+        if (url == null) {
+            container = new PostgreSQLContainer<>(IMAGE)
+                    .withDatabaseName("car_rental_bench")
+                    .withUsername("bench")
+                    .withPassword("bench");
+            container.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(container::stop, "benchmark-database-shutdown"));
+            // Same batching as the application URL in hibernate.cfg.xml
+            url = container.getJdbcUrl() + (container.getJdbcUrl().contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+            System.setProperty(USERNAME, container.getUsername());
+            System.setProperty(PASSWORD, container.getPassword());
+        }
+        System.setProperty("hibernate.connection.url", url);
+        System.setProperty("hibernate.connection.username", System.getProperty(USERNAME, "admin"));
+        System.setProperty("hibernate.connection.password", System.getProperty(PASSWORD, "admin"));
+    }
+
+    static final Logger logger = Logger.getLogger(BenchmarkDatabase.class.getName());
+}
@@ -0,0 +1,446 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.Customer;
+import cz.muni.fi.pv168.HibernateSessionFactory;
+import cz.muni.fi.pv168.RentManager;
+import cz.muni.fi.pv168.RentManagerImplementation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Load generator for the booking counter: concurrent agents book cars with rentCarToCustomer and return
+ * them with getCarFromCustomer against a seeded fleet, see {@link BenchmarkDatabase}.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar cz.muni.fi.pv168.benchmarks.BookingLoadSimulator \
+ *     --agents=64 --rate=500 --duration=60 --fleet=10000 --popular-cars=20 --contention=0.5
+ * </pre>
+ *
+ * Every agent serves its own customers and books a period starting within the booking horizon. A share
+ * of the bookings, the contention ratio, asks for one of the few popular cars, the others for any car,
+ * also for the seeded cars rented for the coming week.
+ * With a rate, the agents together start that many operations per second and latency is measured from
+ * the intended start, so a stalled manager shows up in the percentiles. Without a rate they run flat out.
+ *
+ * The report gives throughput, latency percentiles of accepted and rejected bookings and of returns,
+ * errors by type and double bookings. A double booking is two accepted bookings of one car with
+ * overlapping periods that were both held at the same time, found in the simulator's own ledger and
+ * in the rents table after the run.
+ */
+public final class BookingLoadSimulator {
+
+    static final String REJECTED_MESSAGE = "Car is already rented";
+
+    /** Customers served by one agent. */
+    static final int CUSTOMERS_PER_AGENT = 5;
+
+    /** Logs every booking the rents_no_overlap constraint rejects, which are expected here. */
+    private static final Logger JDBC_LOGGER = Logger.getLogger("org.hibernate.engine.jdbc");
+
+    private final Settings settings;
+    private final RentManager rentManager = new RentManagerImplementation();
+    private final LocalDate today = LocalDate.now();
+    private final Queue<Booking> ledger = new ConcurrentLinkedQueue<>();
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+
+    BookingLoadSimulator(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        JDBC_LOGGER.setLevel(Level.OFF);
+        BenchmarkDatabase.seed(settings.fleet());
+        Report report = new BookingLoadSimulator(settings).run();
+        System.out.println(report.format());
+        if (settings.json() != null) {
+            Files.writeString(settings.json(), report.toJson(), StandardCharsets.UTF_8);
+            System.out.println("Report written to " + settings.json());
+        }
+        HibernateSessionFactory.shutdown();
+    }
+
+    Report run() throws InterruptedException {
+        List<Agent> agents = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        long end = start + settings.duration().toNanos();
+        for (int i = 0; i < settings.agents(); i++) {
+            Agent agent = new Agent(i, start, end);
+            agents.add(agent);
+            threads.add(Thread.ofPlatform().name("agent-" + i).start(agent));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Latencies booked = new Latencies();
+        Latencies rejected = new Latencies();
+        Latencies returned = new Latencies();
+        for (Agent agent : agents) {
+            booked.addAll(agent.booked);
+            rejected.addAll(agent.rejected);
+            returned.addAll(agent.returned);
+        }
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+        return new Report(settings, elapsed, booked.summary(), rejected.summary(), returned.summary(),
+                errorCounts, doubleBookings(), overlappingRents());
+    }
+
+    /**
+     * Counts pairs of accepted bookings of one car with overlapping periods that were held at the same time:
+     * both calls had returned before either of the two returns started.
+     */
+    long doubleBookings() {
+        Map<Integer, List<Booking>> byCar = ledger.stream().collect(Collectors.groupingBy(Booking::car));
+        long anomalies = 0;
+        for (List<Booking> bookings : byCar.values()) {
+            bookings.sort(Comparator.comparing(Booking::rentDate));
+            for (int i = 0; i < bookings.size(); i++) {
+                Booking a = bookings.get(i);
+                for (int j = i + 1; j < bookings.size() && !bookings.get(j).rentDate().isAfter(a.dueDate()); j++) {
+                    Booking b = bookings.get(j);
+                    if (a.bookedNanos() <= b.returnStartNanos && b.bookedNanos() <= a.returnStartNanos) {
+                        anomalies++;
+                    }
+                }
+            }
+        }
+        return anomalies;
+    }
+
+    /**
+     * Counts pairs of overlapping rents of one car left in the database.
+     */
+    static long overlappingRents() {
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            return session.doReturningWork(connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet result = statement.executeQuery("SELECT count(*) FROM rents a JOIN rents b "
+                             + "ON a.car = b.car AND a.id < b.id AND a.rent_date <= b.due_date AND b.rent_date <= a.due_date")) {
+                    result.next();
+                    return result.getLong(1);
+                }
+            });
+        }
+    }
+
+    private void error(Throwable ex) {
+        errors.computeIfAbsent(ex.getClass().getSimpleName() + ": " + ex.getMessage(), type -> new LongAdder()).increment();
+    }
+
+    /**
+     * One counter agent, booking for and taking cars back from its own customers.
+     */
+    private final class Agent implements Runnable {
+
+        private final SplittableRandom random;
+        private final int firstCustomer;
+        private final long start;
+        private final long end;
+        private final List<Booking> held = new ArrayList<>();
+        private final Latencies booked = new Latencies();
+        private final Latencies rejected = new Latencies();
+        private final Latencies returned = new Latencies();
+
+        private Agent(int id, long start, long end) {
+            this.random = new SplittableRandom(settings.seed() + id);
+            this.firstCustomer = id * CUSTOMERS_PER_AGENT;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            // Every agent starts its share of the rate at a fixed interval, offset so that the agents interleave
+            long interval = settings.rate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * settings.agents() / settings.rate()) : 0;
+            long next = start + (interval > 0 ? random.nextLong(interval) : 0);
+            while (true) {
+                long intended = interval > 0 ? next : System.nanoTime();
+                if (intended >= end) {
+                    return;
+                }
+                if (interval > 0) {
+                    next += interval;
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                if (!held.isEmpty() && random.nextDouble() < settings.returnRatio()) {
+                    giveBack(intended);
+                } else {
+                    book(intended);
+                }
+            }
+        }
+
+        private void book(long intended) {
+            int car = random.nextDouble() < settings.contention()
+                    ? 2 * random.nextInt(settings.popularCars()) + 1 : random.nextInt(settings.fleet());
+            int customer = firstCustomer + random.nextInt(CUSTOMERS_PER_AGENT);
+            LocalDate rentDate = today.plusDays(1 + random.nextInt(settings.horizonDays()));
+            LocalDate dueDate = rentDate.plusDays(random.nextInt(settings.maxRentDays()));
+            try {
+                rentManager.rentCarToCustomer(BenchmarkDatabase.car(car), customer(customer), rentDate, dueDate);
+                long done = System.nanoTime();
+                booked.record(done - intended);
+                Booking booking = new Booking(car, customer, rentDate, dueDate, done);
+                held.add(booking);
+                ledger.add(booking);
+            } catch (IllegalArgumentException ex) {
+                if (ex.getMessage() != null && ex.getMessage().startsWith(REJECTED_MESSAGE)) {
+                    rejected.record(System.nanoTime() - intended);
+                } else {
+                    error(ex);
+                }
+            } catch (RuntimeException ex) {
+                error(ex);
+            }
+        }
+
+        private void giveBack(long intended) {
+            Booking returning = held.get(random.nextInt(held.size()));
+            // Returning a car closes every rent of the car and customer, also the other held bookings of the pair
+            long returnStart = System.nanoTime();
+            held.removeIf(booking -> {
+                if (booking.car() == returning.car() && booking.customer() == returning.customer()) {
+                    booking.returnStartNanos = returnStart;
+                    return true;
+                }
+                return false;
+            });
+            try {
+                rentManager.getCarFromCustomer(BenchmarkDatabase.car(returning.car()), customer(returning.customer()));
+                returned.record(System.nanoTime() - intended);
+            } catch (RuntimeException ex) {
+                error(ex);
+            }
+        }
+
+        private Customer customer(int index) {
+            return BenchmarkDatabase.customer(index, settings.fleet()).withActive(true);
+        }
+    }
+
+    /**
+     * Accepted booking, held from the end of the booking call until its return starts.
+     */
+    static final class Booking {
+        private final int car;
+        private final int customer;
+        private final LocalDate rentDate;
+        private final LocalDate dueDate;
+        private final long bookedNanos;
+        private volatile long returnStartNanos = Long.MAX_VALUE;
+
+        Booking(int car, int customer, LocalDate rentDate, LocalDate dueDate, long bookedNanos) {
+            this.car = car;
+            this.customer = customer;
+            this.rentDate = rentDate;
+            this.dueDate = dueDate;
+            this.bookedNanos = bookedNanos;
+        }
+
+        int car() {
+            return car;
+        }
+
+        int customer() {
+            return customer;
+        }
+
+        LocalDate rentDate() {
+            return rentDate;
+        }
+
+        LocalDate dueDate() {
+            return dueDate;
+        }
+
+        long bookedNanos() {
+            return bookedNanos;
+        }
+    }
+
+    /**
+     * Every latency of one outcome, kept whole for exact percentiles. Each agent records its own.
+     */
+    static final class Latencies {
+        private long[] values = new long[1024];
+        private int count;
+
+        void record(long nanos) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, 2 * count);
+            }
+            values[count++] = nanos;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.values[i]);
+            }
+        }
+
+        Summary summary() {
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return new Summary(count, percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), count == 0 ? 0 : sorted[count - 1]);
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            return sorted.length == 0 ? 0 : sorted[(int) Math.ceil(quantile * sorted.length) - 1];
+        }
+    }
+
+    record Summary(long count, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+
+        String format(String name, double seconds) {
+            return String.format(Locale.ROOT, "%-9s %9d %9.1f/s   p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms",
+                    name, count, count / seconds, millis(p50Nanos), millis(p90Nanos), millis(p99Nanos),
+                    millis(p999Nanos), millis(maxNanos));
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"count\":%d,\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"p999Ms\":%.3f,\"maxMs\":%.3f}",
+                    count, millis(p50Nanos), millis(p90Nanos), millis(p99Nanos), millis(p999Nanos), millis(maxNanos));
+        }
+
+        private static double millis(long nanos) {
+            return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    record Report(Settings settings, long elapsedNanos, Summary booked, Summary rejected, Summary returned,
+                  Map<String, Long> errors, long doubleBookings, long overlappingRents) {
+
+        long operations() {
+            return booked.count() + rejected.count() + returned.count() + errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        String format() {
+            double seconds = (double) elapsedNanos / TimeUnit.SECONDS.toNanos(1);
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.ROOT, "%n%s%n", settings));
+            out.append(String.format(Locale.ROOT, "%d operations in %.1f s, %.1f/s%n", operations(), seconds, operations() / seconds));
+            out.append(booked.format("booked", seconds)).append('\n');
+            out.append(rejected.format("rejected", seconds)).append('\n');
+            out.append(returned.format("returned", seconds)).append('\n');
+            long bookings = booked.count() + rejected.count();
+            out.append(String.format(Locale.ROOT, "rejection ratio %.1f %%%n", bookings == 0 ? 0.0 : 100.0 * rejected.count() / bookings));
+            errors.forEach((type, count) -> out.append(String.format(Locale.ROOT, "error %6d  %s%n", count, type)));
+            out.append(String.format(Locale.ROOT, "double bookings %d in the ledger, %d overlapping rents in the database%n",
+                    doubleBookings, overlappingRents));
+            return out.toString();
+        }
+
+        String toJson() {
+            String errorJson = errors.entrySet().stream()
+                    .map(error -> "\"" + error.getKey().replace("\\", "\\\\").replace("\"", "\\\"") + "\":" + error.getValue())
+                    .collect(Collectors.joining(",", "{", "}"));
+            return String.format(Locale.ROOT, "{\"settings\":%s,\"elapsedSeconds\":%.3f,\"operations\":%d,"
+                            + "\"booked\":%s,\"rejected\":%s,\"returned\":%s,\"errors\":%s,\"doubleBookings\":%d,\"overlappingRents\":%d}%n",
+                    settings.toJson(), (double) elapsedNanos / TimeUnit.SECONDS.toNanos(1), operations(),
+                    booked.toJson(), rejected.toJson(), returned.toJson(), errorJson, doubleBookings, overlappingRents);
+        }
+    }
+
+    /**
+     * Simulation parameters, given as --name=value options.
+     *
+     * @param agents concurrent counter agents
+     * @param rate operations per second of all agents together, 0 runs the agents flat out
+     * @param duration length of the run
+     * @param fleet cars, and customers, in the seeded database
+     * @param popularCars number of popular cars, the available cars with the lowest indexes
+     * @param contention share of bookings asking for a popular car
+     * @param returnRatio share of operations returning a held car instead of booking one
+     * @param horizonDays bookings start within this many days from tomorrow
+     * @param maxRentDays bookings last from 1 to this many days
+     * @param seed seed of the agents' random choices
+     * @param json file to write the report to as JSON, or null
+     */
+    record Settings(int agents, double rate, Duration duration, int fleet, int popularCars, double contention,
+                    double returnRatio, int horizonDays, int maxRentDays, long seed, Path json) {
+
+        Settings {
+            if (agents < 1 || rate < 0 || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Agents and duration must be positive, rate must not be negative");
+            }
+            if (popularCars < 1 || 2 * popularCars > fleet || fleet < agents * CUSTOMERS_PER_AGENT) {
+                throw new IllegalArgumentException("Fleet must hold the popular cars and " + CUSTOMERS_PER_AGENT
+                        + " customers per agent");
+            }
+            if (contention < 0 || contention > 1 || returnRatio < 0 || returnRatio >= 1) {
+                throw new IllegalArgumentException("Contention must be within [0, 1], return ratio within [0, 1)");
+            }
+            if (horizonDays < 1 || maxRentDays < 1) {
+                throw new IllegalArgumentException("Booking horizon and rent length must be positive");
+            }
+        }
+
+        static Settings parse(String[] args) {
+            Map<String, String> options = new LinkedHashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Options are given as --name=value, not " + arg);
+                }
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+            Settings settings = new Settings(
+                    Integer.parseInt(options.getOrDefault("agents", "32")),
+                    Double.parseDouble(options.getOrDefault("rate", "0")),
+                    Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60"))),
+                    Integer.parseInt(options.getOrDefault("fleet", "10000")),
+                    Integer.parseInt(options.getOrDefault("popular-cars", "20")),
+                    Double.parseDouble(options.getOrDefault("contention", "0.5")),
+                    Double.parseDouble(options.getOrDefault("return-ratio", "0.3")),
+                    Integer.parseInt(options.getOrDefault("horizon-days", "30")),
+                    Integer.parseInt(options.getOrDefault("max-rent-days", "3")),
+                    Long.parseLong(options.getOrDefault("seed", "42")),
+                    options.containsKey("json") ? Path.of(options.get("json")) : null);
+            options.keySet().removeAll(List.of("agents", "rate", "duration", "fleet", "popular-cars", "contention",
+                    "return-ratio", "horizon-days", "max-rent-days", "seed", "json"));
+            if (!options.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options " + options.keySet());
+            }
+            return settings;
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"agents\":%d,\"rate\":%.1f,\"durationSeconds\":%d,\"fleet\":%d,"
+                            + "\"popularCars\":%d,\"contention\":%.3f,\"returnRatio\":%.3f,\"horizonDays\":%d,"
+                            + "\"maxRentDays\":%d,\"seed\":%d}",
+                    agents, rate, duration.toSeconds(), fleet, popularCars, contention, returnRatio, horizonDays,
+                    maxRentDays, seed);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.Car;
+import cz.muni.fi.pv168.CarManager;
+import cz.muni.fi.pv168.CarManagerImplementation;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single car operations and the available cars listing, against data sets of 1k, 100k and 1M cars.
+ * New cars get UUIDv7 keys, so addCar also measures inserting at the right edge of the primary key index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class CarManagerBenchmark {
+
+    private final CarManager carManager = new CarManagerImplementation();
+    private final AtomicLong plates = new AtomicLong();
+
+    @Benchmark
+    public Car addCar(Dataset dataset) {
+        Car car = Car.create("Octavia", "Red", true, 150.0, "N" + plates.incrementAndGet());
+        carManager.addCar(car);
+        return car;
+    }
+
+    @Benchmark
+    public Car findCarByID(Dataset dataset, Dataset.Picker picker) {
+        return carManager.findCarByID(BenchmarkDatabase.carId(picker.car(dataset.rows)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Car> getAvailableCars(Dataset dataset) {
+        return carManager.getAvailableCars();
+    }
+}
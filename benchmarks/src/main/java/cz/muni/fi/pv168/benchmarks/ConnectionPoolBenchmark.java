@@ -0,0 +1,68 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.HibernateSessionFactory;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Latency of borrowing a pooled connection with 64 concurrent callers, more than the pool holds, so callers
+ * queue for connections. Sampled, so the results include the percentiles of the wait.
+ * The pool counters of the run are printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class ConnectionPoolBenchmark {
+
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp(ReferenceDataset dataset) {
+        sessionFactory = HibernateSessionFactory.getSessionFactory();
+    }
+
+    @Benchmark
+    public void acquire(Blackhole blackhole) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.doWork(connection -> blackhole.consume(connection.getAutoCommit()));
+        }
+    }
+
+    @Benchmark
+    public void acquireAndQuery(Blackhole blackhole) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.doWork(connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet result = statement.executeQuery("SELECT 1")) {
+                    result.next();
+                    blackhole.consume(result.getInt(1));
+                }
+            });
+        }
+    }
+
+    @TearDown
+    public void printPoolStatistics() {
+        BenchmarkDatabase.logger.info("Pool after the trial: " + HibernateSessionFactory.getConnectionPoolStatistics());
+    }
+}
@@ -0,0 +1,55 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Seeded database shared by the threads of a benchmark, see {@link BenchmarkDatabase} for its content.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    /** Day the data set was seeded, the current rents run from the day before to a week after. */
+    LocalDate today;
+
+    @Setup
+    public void seed() {
+        BenchmarkDatabase.seed(rows);
+        today = LocalDate.now();
+    }
+
+    /**
+     * Picks rows with a fixed seed per thread, so every run visits the same rows in the same order.
+     */
+    @State(Scope.Thread)
+    public static class Picker {
+
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        /** Index of a rented car, every rented car has one current rent. */
+        int rentedCar(int rows) {
+            return 2 * random.nextInt(rows / 2);
+        }
+
+        /** Index of an available car. */
+        int availableCar(int rows) {
+            return 2 * random.nextInt(rows / 2) + 1;
+        }
+
+        /** Index of a customer renting {@link BenchmarkDatabase#CARS_PER_RENTER} cars. */
+        int renter(int rows) {
+            return random.nextInt(BenchmarkDatabase.renters(rows));
+        }
+
+        int car(int rows) {
+            return random.nextInt(rows);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.UuidV7;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Insert throughput of random UUIDv4 keys against time-ordered UUIDv7 keys: batches of cars, each with a
+ * rent of a seeded customer, inserted into the cars and rents tables in one transaction per batch.
+ * Random keys land all over the primary key B-trees and split their pages, UUIDv7 keys append at the right
+ * edge. Both start from empty cars and rents tables. The score is rows per second, the index sizes and the
+ * rows inserted are logged after the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class KeyInsertBenchmark {
+
+    static final int BATCH = 500;
+
+    @Param({"v4", "v7"})
+    public String keys;
+
+    private Connection connection;
+    private PreparedStatement insertCar;
+    private PreparedStatement insertRent;
+    private String[] customers;
+    private Date rentDate;
+    private Date dueDate;
+    private long inserted;
+
+    @Setup
+    public void setUp(ReferenceDataset dataset) throws SQLException {
+        connection = BenchmarkDatabase.openConnection();
+        // The seeded md5 keys span the whole key range, UUIDv7 keys would land inside one of their leaf pages
+        // instead of at the right edge. Only the seeded customers are kept.
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE rents, cars");
+        }
+        connection.setAutoCommit(false);
+        insertCar = connection.prepareStatement(
+                "INSERT INTO cars (id, color, model, payment, license_plate, status) VALUES (?, 'Black', 'Model', 100, ?, false)");
+        insertRent = connection.prepareStatement("INSERT INTO rents (id, car, customer, rent_date, due_date) VALUES (?, ?, ?, ?, ?)");
+        customers = new String[dataset.rows];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = BenchmarkDatabase.customerId(i);
+        }
+        rentDate = Date.valueOf(LocalDate.now().plusDays(1));
+        dueDate = Date.valueOf(LocalDate.now().plusDays(3));
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement();
+             ResultSet sizes = statement.executeQuery("SELECT relname, pg_size_pretty(pg_relation_size(oid)) FROM pg_class "
+                     + "WHERE relname IN ('cars_pkey', 'rents_pkey', 'idx_rent_car') ORDER BY relname")) {
+            StringBuilder report = new StringBuilder(keys + " keys, " + inserted + " cars and rents inserted:");
+            while (sizes.next()) {
+                report.append(' ').append(sizes.getString(1)).append(' ').append(sizes.getString(2));
+            }
+            BenchmarkDatabase.logger.log(Level.INFO, report.toString());
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            UUID car = nextKey();
+            long row = inserted + i;
+            insertCar.setObject(1, car);
+            insertCar.setString(2, "K" + row);
+            insertCar.addBatch();
+            insertRent.setObject(1, nextKey());
+            insertRent.setObject(2, car);
+            insertRent.setObject(3, UUID.fromString(customers[(int) (row % customers.length)]));
+            insertRent.setDate(4, rentDate);
+            insertRent.setDate(5, dueDate);
+            insertRent.addBatch();
+        }
+        insertCar.executeBatch();
+        insertRent.executeBatch();
+        connection.commit();
+        inserted += BATCH;
+    }
+
+    private UUID nextKey() {
+        return "v7".equals(keys) ? UuidV7.generate() : UUID.randomUUID();
+    }
+}
@@ -0,0 +1,133 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Entity keys stored as VARCHAR(36), as before migration V1, against native 16 byte uuid columns. Both
+ * schemas hold the same cars and rents in scratch tables, with the same md5 derived keys. The sizes of the
+ * primary key and foreign key indexes are logged after seeding, the benchmarks time a lookup by primary key
+ * and by foreign key. Keys are passed as strings like in the managers and converted for the uuid schema.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class KeyTypeBenchmark {
+
+    private static final int LOOKUP_KEYS = 4096;
+
+    @Param({"varchar", "uuid"})
+    public String keyType;
+
+    @Param("1000000")
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement findCar;
+    private PreparedStatement findRentsOfCar;
+    private final String[] keys = new String[LOOKUP_KEYS];
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = BenchmarkDatabase.openConnection();
+        connection.setAutoCommit(true);
+        String type = "uuid".equals(keyType) ? "UUID" : "VARCHAR(36)";
+        String cast = "uuid".equals(keyType) ? "::uuid" : "::uuid::text";
+        long start = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+            statement.execute("CREATE TABLE key_bench_cars (id " + type + " NOT NULL PRIMARY KEY, model VARCHAR(32), "
+                    + "payment DECIMAL(10,2), license_plate VARCHAR(20), status BOOLEAN)");
+            statement.execute("CREATE TABLE key_bench_rents (id " + type + " NOT NULL PRIMARY KEY, car " + type
+                    + " NOT NULL REFERENCES key_bench_cars(id), rent_date DATE, due_date DATE)");
+            statement.execute("CREATE INDEX key_bench_rent_car ON key_bench_rents(car)");
+            statement.execute("INSERT INTO key_bench_cars SELECT md5('car-' || i)" + cast + ", 'Model ' || i % 50, "
+                    + "100 + i % 400, 'S' || i, i % 2 = 1 FROM generate_series(0, " + (rows - 1) + ") i");
+            statement.execute("INSERT INTO key_bench_rents SELECT md5('rent-' || i)" + cast + ", md5('car-' || i)" + cast
+                    + ", current_date - 1, current_date + 7 FROM generate_series(0, " + (rows - 1) + ") i");
+            statement.execute("VACUUM ANALYZE key_bench_cars, key_bench_rents");
+            try (ResultSet sizes = statement.executeQuery("SELECT relname, pg_size_pretty(pg_relation_size(oid)) FROM pg_class "
+                    + "WHERE relname IN ('key_bench_cars_pkey', 'key_bench_rents_pkey', 'key_bench_rent_car') ORDER BY relname")) {
+                StringBuilder report = new StringBuilder(keyType + " keys, " + rows + " rows, seeded in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms:");
+                while (sizes.next()) {
+                    report.append(' ').append(sizes.getString(1)).append(' ').append(sizes.getString(2));
+                }
+                BenchmarkDatabase.logger.log(Level.INFO, report.toString());
+            }
+        }
+        findCar = connection.prepareStatement("SELECT id, model, payment, license_plate, status FROM key_bench_cars WHERE id = ?");
+        findRentsOfCar = connection.prepareStatement("SELECT id, rent_date, due_date FROM key_bench_rents WHERE car = ?");
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            keys[i] = BenchmarkDatabase.carId(random.nextInt(rows));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            dropTables(statement);
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public String findCarById() throws SQLException {
+        bind(findCar, nextKey());
+        try (ResultSet car = findCar.executeQuery()) {
+            return car.next() ? car.getString(4) : null;
+        }
+    }
+
+    @Benchmark
+    public int findRentsOfCar() throws SQLException {
+        bind(findRentsOfCar, nextKey());
+        int found = 0;
+        try (ResultSet rents = findRentsOfCar.executeQuery()) {
+            while (rents.next()) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private String nextKey() {
+        return keys[next++ & (LOOKUP_KEYS - 1)];
+    }
+
+    private void bind(PreparedStatement statement, String key) throws SQLException {
+        if ("uuid".equals(keyType)) {
+            statement.setObject(1, UUID.fromString(key));
+        } else {
+            statement.setString(1, key);
+        }
+    }
+
+    private static void dropTables(Statement statement) throws SQLException {
+        statement.execute("DROP TABLE IF EXISTS key_bench_rents, key_bench_cars");
+    }
+}
@@ -0,0 +1,70 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.Car;
+import cz.muni.fi.pv168.HibernateSessionFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parse and plan cost of HQL: the same page query as a named query checked at bootstrap, as an inline
+ * string served from the query plan cache, and as an inline string that misses the cache on every call.
+ * The last one is what every call paid before the manager queries became named queries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class NamedQueryBenchmark {
+
+    private static final String PAGE_AFTER = "FROM Car %1$s WHERE %1$s.uuid > :lastId ORDER BY %1$s.uuid";
+    private static final String CACHED_PAGE_AFTER = String.format(PAGE_AFTER, "e");
+    private static final int PAGE = 10;
+
+    /** More distinct query strings than hibernate.query.plan_cache_max_size, so none stays cached. */
+    private static final int DISTINCT_QUERIES = 4096;
+
+    private int alias;
+
+    @Benchmark
+    public List<Car> namedQuery(ReferenceDataset dataset, Dataset.Picker picker) {
+        try (Session session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            return session.createNamedQuery(Car.FIND_PAGE_AFTER, Car.class)
+                    .setParameter("lastId", BenchmarkDatabase.carId(picker.car(dataset.rows)))
+                    .setMaxResults(PAGE)
+                    .list();
+        }
+    }
+
+    @Benchmark
+    public List<Car> cachedInlineQuery(ReferenceDataset dataset, Dataset.Picker picker) {
+        try (Session session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            return session.createQuery(CACHED_PAGE_AFTER, Car.class)
+                    .setParameter("lastId", BenchmarkDatabase.carId(picker.car(dataset.rows)))
+                    .setMaxResults(PAGE)
+                    .list();
+        }
+    }
+
+    @Benchmark
+    public List<Car> parsedInlineQuery(ReferenceDataset dataset, Dataset.Picker picker) {
+        String hql = String.format(PAGE_AFTER, "e" + alias++ % DISTINCT_QUERIES);
+        try (Session session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            return session.createQuery(hql, Car.class)
+                    .setParameter("lastId", BenchmarkDatabase.carId(picker.car(dataset.rows)))
+                    .setMaxResults(PAGE)
+                    .list();
+        }
+    }
+}
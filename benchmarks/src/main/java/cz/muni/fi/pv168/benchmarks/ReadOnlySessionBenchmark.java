@@ -0,0 +1,78 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.Car;
+import cz.muni.fi.pv168.HibernateSessionFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a page of cars in a managed session, in a read-only session without snapshots and flushes, and in
+ * a stateless session, each in its own transaction. Run with -prof gc to compare the allocation per read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class ReadOnlySessionBenchmark {
+
+    @Param({"100", "1000"})
+    public int page;
+
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp(ReferenceDataset dataset) {
+        sessionFactory = HibernateSessionFactory.getSessionFactory();
+    }
+
+    @Benchmark
+    public List<Car> managedSession() {
+        try (Session session = sessionFactory.openSession()) {
+            return read(session);
+        }
+    }
+
+    @Benchmark
+    public List<Car> readOnlySession() {
+        try (Session session = sessionFactory.openSession()) {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return read(session);
+        }
+    }
+
+    @Benchmark
+    public List<Car> statelessSession() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.beginTransaction();
+            List<Car> cars = session.createNamedQuery(Car.FIND_FIRST_PAGE, Car.class).setMaxResults(page).list();
+            session.getTransaction().commit();
+            return cars;
+        }
+    }
+
+    private List<Car> read(Session session) {
+        session.beginTransaction();
+        List<Car> cars = session.createNamedQuery(Car.FIND_FIRST_PAGE, Car.class).setMaxResults(page).list();
+        // Commit flushes the managed session, which dirty checks every loaded car against its snapshot
+        session.getTransaction().commit();
+        return cars;
+    }
+}
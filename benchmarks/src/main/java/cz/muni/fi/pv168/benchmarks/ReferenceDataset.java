@@ -0,0 +1,21 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Seeded database of one fixed size for the benchmarks that compare implementations rather than data sizes.
+ */
+@State(Scope.Benchmark)
+public class ReferenceDataset {
+
+    @Param("10000")
+    public int rows;
+
+    @Setup
+    public void seed() {
+        BenchmarkDatabase.seed(rows);
+    }
+}
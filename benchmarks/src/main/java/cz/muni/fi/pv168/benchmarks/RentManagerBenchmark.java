@@ -0,0 +1,93 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.Car;
+import cz.muni.fi.pv168.Customer;
+import cz.muni.fi.pv168.Rent;
+import cz.muni.fi.pv168.RentManager;
+import cz.muni.fi.pv168.RentManagerImplementation;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Booking, returning and the rented cars of a customer, against data sets of 1k, 100k and 1M rows.
+ * Bookings without overlap take a new period each, a year ahead, so they never collide with each other.
+ * Overlapping bookings ask for a rented car in its current rent, they are rejected by the interval index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class RentManagerBenchmark {
+
+    private final RentManager rentManager = new RentManagerImplementation();
+    private final AtomicInteger periods = new AtomicInteger();
+
+    @Benchmark
+    public Rent addRent(Dataset dataset, Dataset.Picker picker) {
+        LocalDate rentDate = dataset.today.plusYears(1).plusDays(2L * periods.getAndIncrement());
+        Rent rent = Rent.create(rentDate, rentDate.plusDays(1),
+                BenchmarkDatabase.carId(picker.availableCar(dataset.rows)),
+                BenchmarkDatabase.customerId(picker.renter(dataset.rows)));
+        rentManager.addRent(rent);
+        return rent;
+    }
+
+    @Benchmark
+    public Object addRentWithOverlap(Dataset dataset, Dataset.Picker picker) {
+        Rent rent = Rent.create(dataset.today, dataset.today.plusDays(1),
+                BenchmarkDatabase.carId(picker.rentedCar(dataset.rows)),
+                BenchmarkDatabase.customerId(picker.renter(dataset.rows)));
+        try {
+            rentManager.addRent(rent);
+            throw new IllegalStateException("Overlapping rent " + rent.uuid() + " was booked");
+        } catch (IllegalArgumentException ex) {
+            return ex;
+        }
+    }
+
+    @Benchmark
+    public List<Car> getAllCustomerCars(Dataset dataset, Dataset.Picker picker) {
+        return rentManager.getAllCustomerCars(BenchmarkDatabase.customer(picker.renter(dataset.rows), dataset.rows));
+    }
+
+    @Benchmark
+    public Car getCarFromCustomer(Booking booking) {
+        rentManager.getCarFromCustomer(booking.car, booking.customer);
+        return booking.car;
+    }
+
+    /**
+     * Books an available car before each return. The booking is not part of the measured time, it goes
+     * through the benchmarked manager so that its interval index sees the car returned again.
+     */
+    @State(Scope.Thread)
+    public static class Booking {
+
+        Car car;
+        Customer customer;
+
+        @Setup(Level.Invocation)
+        public void book(RentManagerBenchmark benchmark, Dataset dataset, Dataset.Picker picker) {
+            int carIndex = picker.availableCar(dataset.rows);
+            int customerIndex = picker.renter(dataset.rows);
+            car = BenchmarkDatabase.car(carIndex);
+            customer = BenchmarkDatabase.customer(customerIndex, dataset.rows);
+            benchmark.rentManager.addRent(Rent.create(dataset.today, dataset.today.plusDays(1), car.uuid(), customer.uuid()));
+        }
+    }
+}
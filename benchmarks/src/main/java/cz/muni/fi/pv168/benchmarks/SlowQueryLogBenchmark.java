@@ -0,0 +1,75 @@
+package cz.muni.fi.pv168.benchmarks;
+
+import cz.muni.fi.pv168.SlowQueryLog;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Overhead of the slow query log, which is on by default, on reading rows: a page of cars read column by
+ * column on a plain JDBC connection and on the same connection wrapped by {@link SlowQueryLog}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn"})
+public class SlowQueryLogBenchmark {
+
+    private static final String PAGE = "SELECT id, color, model, payment, license_plate, status FROM cars ORDER BY id LIMIT ?";
+
+    @Param({"false", "true"})
+    public boolean logged;
+
+    @Param({"10", "1000"})
+    public int page;
+
+    private Connection connection;
+
+    @Setup
+    public void setUp(ReferenceDataset dataset) throws SQLException {
+        Connection plain = DriverManager.getConnection(System.getProperty("hibernate.connection.url"),
+                System.getProperty("hibernate.connection.username"), System.getProperty("hibernate.connection.password"));
+        // Only statements slower than the threshold are logged, none is here
+        connection = logged ? new SlowQueryLog(TimeUnit.MINUTES.toMillis(1)).wrap(plain) : plain;
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void readPage(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PAGE)) {
+            statement.setInt(1, page);
+            try (ResultSet cars = statement.executeQuery()) {
+                while (cars.next()) {
+                    blackhole.consume(cars.getObject(1));
+                    blackhole.consume(cars.getString(2));
+                    blackhole.consume(cars.getString(3));
+                    blackhole.consume(cars.getDouble(4));
+                    blackhole.consume(cars.getString(5));
+                    blackhole.consume(cars.getBoolean(6));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package cz.muni.fi.pv168;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade over a {@link CarManager}.
+ * Every call runs on a virtual thread of the given {@link DatabaseExecutor}, exceptions of the
+ * underlying manager complete the returned future exceptionally.
+ */
+public class AsyncCarManager {
+
+    private final CarManager carManager;
+    private final DatabaseExecutor executor;
+
+    public AsyncCarManager(CarManager carManager, DatabaseExecutor executor) {
+        this.carManager = carManager;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> addCar(Car car) {
+        return executor.run(() -> carManager.addCar(car));
+    }
+
+    public CompletableFuture<Void> removeCar(Car car) {
+        return executor.run(() -> carManager.removeCar(car));
+    }
+
+    public CompletableFuture<Car> findCarByID(String ID) {
+        return executor.submit(() -> carManager.findCarByID(ID));
+    }
+
+    public CompletableFuture<Void> updateCarInfo(Car car) {
+        return executor.run(() -> carManager.updateCarInfo(car));
+    }
+
+    public CompletableFuture<BatchResult<Car>> addCars(Collection<Car> cars) {
+        return executor.submit(() -> carManager.addCars(cars));
+    }
+
+    public CompletableFuture<Void> setCarAvailability(String carID, boolean available) {
+        return executor.run(() -> carManager.setCarAvailability(carID, available));
+    }
+
+    public CompletableFuture<Integer> setCarsAvailability(Collection<String> carIDs, boolean available) {
+        return executor.submit(() -> carManager.setCarsAvailability(carIDs, available));
+    }
+
+    public CompletableFuture<BatchResult<Car>> updateCars(Collection<Car> cars) {
+        return executor.submit(() -> carManager.updateCars(cars));
+    }
+
+    public CompletableFuture<BatchResult<Car>> removeCars(Collection<Car> cars) {
+        return executor.submit(() -> carManager.removeCars(cars));
+    }
+
+    public CompletableFuture<List<Car>> getAllCars() {
+        return executor.submit(carManager::getAllCars);
+    }
+
+    public CompletableFuture<List<Car>> getAvailableCars() {
+        return executor.submit(carManager::getAvailableCars);
+    }
+
+    public CompletableFuture<List<Car>> getCarsAfter(String lastId, int limit) {
+        return executor.submit(() -> carManager.getCarsAfter(lastId, limit));
+    }
+}
@@ -0,0 +1,69 @@
+package cz.muni.fi.pv168;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade over a {@link CustomerManager}.
+ * Every call runs on a virtual thread of the given {@link DatabaseExecutor}, exceptions of the
+ * underlying manager complete the returned future exceptionally.
+ */
+public class AsyncCustomerManager {
+
+    private final CustomerManager customerManager;
+    private final DatabaseExecutor executor;
+
+    public AsyncCustomerManager(CustomerManager customerManager, DatabaseExecutor executor) {
+        this.customerManager = customerManager;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> addCustomer(Customer customer) {
+        return executor.run(() -> customerManager.addCustomer(customer));
+    }
+
+    public CompletableFuture<Void> removeCustomer(Customer customer) {
+        return executor.run(() -> customerManager.removeCustomer(customer));
+    }
+
+    public CompletableFuture<Customer> findCustomerByID(String ID) {
+        return executor.submit(() -> customerManager.findCustomerByID(ID));
+    }
+
+    public CompletableFuture<Void> updateCustomerInfo(Customer customer) {
+        return executor.run(() -> customerManager.updateCustomerInfo(customer));
+    }
+
+    public CompletableFuture<BatchResult<Customer>> addCustomers(Collection<Customer> customers) {
+        return executor.submit(() -> customerManager.addCustomers(customers));
+    }
+
+    public CompletableFuture<Void> setCustomerActive(String customerID, boolean active) {
+        return executor.run(() -> customerManager.setCustomerActive(customerID, active));
+    }
+
+    public CompletableFuture<Integer> setCustomersActive(Collection<String> customerIDs, boolean active) {
+        return executor.submit(() -> customerManager.setCustomersActive(customerIDs, active));
+    }
+
+    public CompletableFuture<BatchResult<Customer>> updateCustomers(Collection<Customer> customers) {
+        return executor.submit(() -> customerManager.updateCustomers(customers));
+    }
+
+    public CompletableFuture<BatchResult<Customer>> removeCustomers(Collection<Customer> customers) {
+        return executor.submit(() -> customerManager.removeCustomers(customers));
+    }
+
+    public CompletableFuture<List<Customer>> getAllCustomers() {
+        return executor.submit(customerManager::getAllCustomers);
+    }
+
+    public CompletableFuture<List<Customer>> getActiveCustomers() {
+        return executor.submit(customerManager::getActiveCustomers);
+    }
+
+    public CompletableFuture<List<Customer>> getCustomersAfter(String lastId, int limit) {
+        return executor.submit(() -> customerManager.getCustomersAfter(lastId, limit));
+    }
+}
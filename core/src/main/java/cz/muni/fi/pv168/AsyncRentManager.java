@@ -0,0 +1,87 @@
+package cz.muni.fi.pv168;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade over a {@link RentManager}.
+ * Every call runs on a virtual thread of the given {@link DatabaseExecutor}, exceptions of the
+ * underlying manager complete the returned future exceptionally.
+ */
+public class AsyncRentManager {
+
+    private final RentManager rentManager;
+    private final DatabaseExecutor executor;
+
+    public AsyncRentManager(RentManager rentManager, DatabaseExecutor executor) {
+        this.rentManager = rentManager;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Customer> findCustomerWithCar(Car car) {
+        return executor.submit(() -> rentManager.findCustomerWithCar(car));
+    }
+
+    public CompletableFuture<List<Car>> getAllCustomerCars(Customer customer) {
+        return executor.submit(() -> rentManager.getAllCustomerCars(customer));
+    }
+
+    public CompletableFuture<Map<Customer, List<Car>>> getCarsForCustomers(Collection<Customer> customers) {
+        return executor.submit(() -> rentManager.getCarsForCustomers(customers));
+    }
+
+    public CompletableFuture<Map<Car, Customer>> getCustomersForCars(Collection<Car> cars) {
+        return executor.submit(() -> rentManager.getCustomersForCars(cars));
+    }
+
+    public CompletableFuture<Void> addRent(Rent rent) {
+        return executor.run(() -> rentManager.addRent(rent));
+    }
+
+    public CompletableFuture<Void> rentCarToCustomer(Car car, Customer customer, LocalDate rentDate, LocalDate dueDate) {
+        return executor.run(() -> rentManager.rentCarToCustomer(car, customer, rentDate, dueDate));
+    }
+
+    public CompletableFuture<Void> getCarFromCustomer(Car car, Customer customer) {
+        return executor.run(() -> rentManager.getCarFromCustomer(car, customer));
+    }
+
+    public CompletableFuture<Rent> findRentWithCar(Car car) {
+        return executor.submit(() -> rentManager.findRentWithCar(car));
+    }
+
+    public CompletableFuture<List<Rent>> getAllRents() {
+        return executor.submit(rentManager::getAllRents);
+    }
+
+    public CompletableFuture<Void> updateRent(Rent rent) {
+        return executor.run(() -> rentManager.updateRent(rent));
+    }
+
+    public CompletableFuture<BatchResult<Rent>> addRents(Collection<Rent> rents) {
+        return executor.submit(() -> rentManager.addRents(rents));
+    }
+
+    public CompletableFuture<BatchResult<Rent>> updateRents(Collection<Rent> rents) {
+        return executor.submit(() -> rentManager.updateRents(rents));
+    }
+
+    public CompletableFuture<BatchResult<Rent>> removeRents(Collection<Rent> rents) {
+        return executor.submit(() -> rentManager.removeRents(rents));
+    }
+
+    public CompletableFuture<Boolean> hasOverlappingRent(String carID, LocalDate rentDate, LocalDate dueDate) {
+        return executor.submit(() -> rentManager.hasOverlappingRent(carID, rentDate, dueDate));
+    }
+
+    public CompletableFuture<LocalDate> findEarliestFreePeriod(String carID, LocalDate notBefore, int days) {
+        return executor.submit(() -> rentManager.findEarliestFreePeriod(carID, notBefore, days));
+    }
+
+    public CompletableFuture<List<Rent>> getRentsAfter(String lastId, int limit) {
+        return executor.submit(() -> rentManager.getRentsAfter(lastId, limit));
+    }
+}
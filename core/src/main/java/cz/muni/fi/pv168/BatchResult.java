@@ -0,0 +1,49 @@
+package cz.muni.fi.pv168;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a batch write operation.
+ * Items that passed validation are written in a single transaction and listed as written,
+ * every other item is listed as rejected together with the exception explaining why.
+ *
+ * @param <T> type of the batched entity
+ */
+public class BatchResult<T> {
+
+    /**
+     * Single rejected item of a batch together with the reason of the rejection.
+     */
+    public record Failure<T>(T item, RuntimeException error) {
+    }
+
+    private final List<T> written = new ArrayList<>();
+    private final List<Failure<T>> rejected = new ArrayList<>();
+
+    void written(T item) {
+        written.add(item);
+    }
+
+    void rejected(T item, RuntimeException error) {
+        rejected.add(new Failure<>(item, error));
+    }
+
+    public List<T> written() {
+        return Collections.unmodifiableList(written);
+    }
+
+    public List<Failure<T>> rejected() {
+        return Collections.unmodifiableList(rejected);
+    }
+
+    public boolean isComplete() {
+        return rejected.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{written=" + written.size() + ", rejected=" + rejected.size() + "}";
+    }
+}
@@ -0,0 +1,25 @@
+package cz.muni.fi.pv168;
+
+/**
+ * Snapshot of the Hibernate second-level (entity) cache, query cache and query plan cache counters.
+ */
+public record CacheStatistics(long entityHits, long entityMisses, long queryHits, long queryMisses,
+                              long queryPlanHits, long queryPlanMisses) {
+
+    public double entityHitRatio() {
+        return ratio(entityHits, entityMisses);
+    }
+
+    public double queryHitRatio() {
+        return ratio(queryHits, queryMisses);
+    }
+
+    public double queryPlanHitRatio() {
+        return ratio(queryPlanHits, queryPlanMisses);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
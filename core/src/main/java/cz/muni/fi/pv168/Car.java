@@ -1,23 +1,60 @@
 package cz.muni.fi.pv168;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.Accessors;
-import java.util.UUID;
 
 @Entity
-@Table(name = "cars")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
+@Table(name = "cars", uniqueConstraints =
+        @UniqueConstraint(name = ConstraintViolations.CAR_LICENSE_PLATE, columnNames = "license_plate"))
+@NamedQuery(name = Car.FIND_AVAILABLE, query = "FROM Car WHERE available = true")
+@NamedQuery(name = Car.FIND_ALL, query = "FROM Car")
+@NamedQuery(name = Car.FIND_FIRST_PAGE, query = "FROM Car e ORDER BY e.uuid")
+@NamedQuery(name = Car.FIND_PAGE_AFTER, query = "FROM Car e WHERE e.uuid > :lastId ORDER BY e.uuid")
+@NamedQuery(name = Car.FIND_TAKEN_PLATES,
+        query = "SELECT c.licensePlate FROM Car c WHERE c.licensePlate IN :plates")
+@NamedQuery(name = Car.FIND_PLATE_OWNERS,
+        query = "SELECT c.licensePlate, c.uuid FROM Car c WHERE c.licensePlate IN :plates")
+@NamedQuery(name = Car.FIND_BY_IDS, query = "FROM Car c WHERE c.uuid IN :ids")
+@NamedQuery(name = Car.FIND_EXISTING_IDS, query = "SELECT c.uuid FROM Car c WHERE c.uuid IN :ids")
+@NamedQuery(name = Car.DELETE_BY_IDS, query = "DELETE FROM Car c WHERE c.uuid IN :ids")
+@NamedQuery(name = Car.SET_AVAILABILITY, query = "UPDATE Car c SET c.available = :available WHERE c.uuid IN :ids")
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @EqualsAndHashCode
 @Accessors(fluent = true)
 public class Car {
+    // Names of the queries declared above, Hibernate parses and validates them when the SessionFactory is built
+    public static final String FIND_AVAILABLE = "Car.findAvailable";
+    public static final String FIND_ALL = "Car.findAll";
+    public static final String FIND_FIRST_PAGE = "Car.findFirstPage";
+    public static final String FIND_PAGE_AFTER = "Car.findPageAfter";
+    public static final String FIND_TAKEN_PLATES = "Car.findTakenPlates";
+    public static final String FIND_PLATE_OWNERS = "Car.findPlateOwners";
+    public static final String FIND_BY_IDS = "Car.findByIds";
+    public static final String FIND_EXISTING_IDS = "Car.findExistingIds";
+    public static final String DELETE_BY_IDS = "Car.deleteByIds";
+    public static final String SET_AVAILABILITY = "Car.setAvailability";
+
     @Id
     @Column(name = "id")
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
     private String uuid;
 
     @Column(name = "model")
@@ -27,20 +64,22 @@ public class Car {
     private String color;
 
     @Column(name = "status")
+    @Setter(AccessLevel.PACKAGE)
     private Boolean available;
 
-    @Column(name = "payment")
+    @Column(name = "payment", precision = 10, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
     private Double rentalPayment;
 
     @Column(name = "license_plate")
     private String licensePlate;
 
     /**
-     * Factory method for creating new Car instances with auto-generated UUID.
+     * Factory method for creating new Car instances with auto-generated time-ordered UUID.
      * Use this when creating cars to be saved to the database.
      */
     public static Car create(String model, String color, Boolean available, Double rentalPayment, String licensePlate) {
-        return new Car(UUID.randomUUID().toString(), model, color, available, rentalPayment, licensePlate);
+        return new Car(UuidV7.generate().toString(), model, color, available, rentalPayment, licensePlate);
     }
 
     public Car withUuid(String uuid) {
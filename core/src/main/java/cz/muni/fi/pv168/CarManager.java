@@ -1,7 +1,9 @@
 package cz.muni.fi.pv168;
 
 import java.io.FileOutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 public interface CarManager {
@@ -14,10 +16,41 @@ public interface CarManager {
 
     public void updateCarInfo(Car car) throws TransactionException;
 
+    /**
+     * Sets only the availability of the car with the given ID. Only the status column is updated and the
+     * cached car is updated in place.
+     */
+    public void setCarAvailability(String carID, boolean available) throws TransactionException;
+
+    /**
+     * Sets the availability of all cars with the given IDs in a single UPDATE statement.
+     * Returns the number of updated cars, IDs without a stored car are skipped.
+     * For more than one ID the bulk UPDATE evicts all cars from the second-level cache.
+     */
+    public int setCarsAvailability(Collection<String> carIDs, boolean available) throws TransactionException;
+
+    public BatchResult<Car> addCars(Collection<Car> cars) throws TransactionException;
+
+    public BatchResult<Car> updateCars(Collection<Car> cars) throws TransactionException;
+
+    public BatchResult<Car> removeCars(Collection<Car> cars) throws TransactionException;
+
     public List<Car> getAllCars() throws TransactionException;
 
     public List<Car> getAvailableCars() throws TransactionException;
 
+    /**
+     * Streams all cars from the database cursor instead of loading the whole table.
+     * The stream holds an open database session and must be closed by the caller.
+     */
+    public Stream<Car> streamAllCars() throws TransactionException;
+
+    /**
+     * Returns at most {@code limit} cars ordered by ID whose ID is greater than {@code lastId}.
+     * Pass {@code null} to get the first page and the ID of the last returned entry to get the next one.
+     */
+    public List<Car> getCarsAfter(String lastId, int limit) throws TransactionException;
+
     public void setDataSource(DataSource ds);
 
     public void setLogger(FileOutputStream fs);
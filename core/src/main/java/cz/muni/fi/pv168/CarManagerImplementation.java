@@ -1,12 +1,20 @@
 package cz.muni.fi.pv168;
 
 import java.io.FileOutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 import java.util.logging.StreamHandler;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 import javax.sql.DataSource;
@@ -22,29 +30,13 @@ public class CarManagerImplementation implements CarManager {
     @Override
     public void addCar(Car car) throws TransactionException {
         //Check if the Arguments are valid:
-        if (null == car) {
-            throw new IllegalArgumentException("Can not INSERT NULL ENTRY to CARS");
-        }
-        if (null == car.uuid()) {
-            throw new IllegalArgumentException("Car ID is NULL");
-        }
-        if ((null == car.color()) || (null == car.licensePlate()) || (null == car.model())
-                || (null == car.rentalPayment()) || (car.rentalPayment() < 0)) {
-            throw new IllegalArgumentException("Car with WRONG PARAMETERS");
-        }
+        checkCarToAdd(car);
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            
-            Query<Long> plateQuery = session.createQuery(
-                "SELECT count(c) FROM Car c WHERE c.licensePlate = :plate", Long.class);
-            plateQuery.setParameter("plate", car.licensePlate());
-            if (plateQuery.uniqueResult() > 0) {
-                throw new IllegalArgumentException("Car with duplicate license plate");
-            }
-
+            // A duplicate license plate is rejected by the cars_license_plate_key constraint
             session.persist(car);
             transaction.commit();
             logger.log(Level.INFO, ("New Car ID " + car.uuid() + " added"));
@@ -57,6 +49,10 @@ public class CarManagerImplementation implements CarManager {
             if (transaction != null) {
                 transaction.rollback();
             }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
             logger.log(Level.SEVERE, "Error when INSERT Car into DB" + car, ex);
             throw new TransactionException("Error when INSERT Car into DB" + car, ex);
         } finally {
@@ -67,17 +63,9 @@ public class CarManagerImplementation implements CarManager {
     @Override
     public void removeCar(Car car) throws TransactionException {
         //Check if the Argument is valid:
-        if (null == car) {
-            throw new IllegalArgumentException("Can't DELETE NULL ENTRY from CarDB");
-        }
-        if (null == car.uuid()) {
-            throw new IllegalArgumentException("Can't DELETE Car with NO ID");
-        }
-        if (!car.available()) {
-            throw new IllegalArgumentException("Can't DELETE rented Car");
-        }
+        checkCarToRemove(car);
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
@@ -111,7 +99,7 @@ public class CarManagerImplementation implements CarManager {
             throw new IllegalArgumentException("Can't locate Car with null ID");
         }
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openReadOnlySession();
         try {
             Car car = session.get(Car.class, ID);
             return car;
@@ -126,30 +114,12 @@ public class CarManagerImplementation implements CarManager {
     @Override
     public void updateCarInfo(Car car) throws TransactionException {
         //Check if the Argument is valid:
-        if (null == car) {
-            throw new IllegalArgumentException("Can't INSERT NULL ENTRY to CarDB");
-        }
-        if (null == car.uuid()) {
-            throw new IllegalArgumentException("Can't UPDATE Car with NULL ID");
-        }
-        if ((null == car.color()) || (null == car.licensePlate()) || (null == car.model())
-                || (null == car.rentalPayment()) || (car.rentalPayment() < 0) || (null == car.available())) {
-            throw new IllegalArgumentException("Car with WRONG PARAMETRS");
-        }
+        checkCarToUpdate(car);
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            
-            Query<Long> plateQuery = session.createQuery(
-                "SELECT count(c) FROM Car c WHERE c.licensePlate = :plate AND c.uuid != :id", Long.class);
-            plateQuery.setParameter("plate", car.licensePlate());
-            plateQuery.setParameter("id", car.uuid());
-            if (plateQuery.uniqueResult() > 0) {
-                throw new IllegalArgumentException("Car with duplicate license plate");
-            }
-
             if (session.get(Car.class, car.uuid()) == null) {
                 throw new TransactionException("Car with ID " + car.uuid() + " does not exist");
             }
@@ -165,6 +135,10 @@ public class CarManagerImplementation implements CarManager {
             if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
             logger.log(Level.SEVERE, "Error UPDATE Car from DB with ID " + car.uuid(), ex);
             throw new TransactionException("Error UPDATE Car from DB with ID " + car.uuid(), ex);
         } finally {
@@ -174,10 +148,10 @@ public class CarManagerImplementation implements CarManager {
 
     @Override
     public List<Car> getAvailableCars() throws TransactionException {
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openReadOnlySession();
         try {
-            Query<Car> query = session.createQuery(
-                    "FROM Car WHERE available = true", Car.class);
+            Query<Car> query = session.createNamedQuery(Car.FIND_AVAILABLE, Car.class);
+            query.setCacheable(true);
             return query.list();
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Error when getting available Cars from CarsDB", ex);
@@ -189,21 +163,391 @@ public class CarManagerImplementation implements CarManager {
 
     @Override
     public List<Car> getAllCars() throws TransactionException {
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
         try {
-            Query<Car> query = session.createQuery("FROM Car", Car.class);
-            return query.list();
+            return RentalUnitOfWork.read(session -> session.createNamedQuery(Car.FIND_ALL, Car.class).list());
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Error when SELECT all cars from CarsDB", ex);
             throw new TransactionException("Error when SELECT all cars from CarsDB", ex);
+        }
+    }
+
+    @Override
+    public Stream<Car> streamAllCars() throws TransactionException {
+        // A stateless session keeps no persistence context, so streamed rows do not pile up in memory.
+        // PostgreSQL only honours the fetch size inside a transaction, otherwise it reads the whole result at once.
+        StatelessSession session = HibernateSessionFactory.getSessionFactory().openStatelessSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            Query<Car> query = session.createNamedQuery(Car.FIND_ALL, Car.class);
+            query.setFetchSize(HibernateSessionFactory.getJdbcFetchSize());
+            return query.stream().onClose(() -> {
+                try {
+                    transaction.rollback();
+                } finally {
+                    session.close();
+                }
+            });
+        } catch (Exception ex) {
+            session.close();
+            logger.log(Level.SEVERE, "Error when streaming cars from CarsDB", ex);
+            throw new TransactionException("Error when streaming cars from CarsDB", ex);
+        }
+    }
+
+    @Override
+    public List<Car> getCarsAfter(String lastId, int limit) throws TransactionException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        if (null != lastId && !UuidStringJavaType.isValid(lastId)) {
+            throw new IllegalArgumentException("Page cursor is not a valid ID");
+        }
+
+        Session session = RentalUnitOfWork.openSession();
+        try {
+            Query<Car> query;
+            if (null == lastId) {
+                query = session.createNamedQuery(Car.FIND_FIRST_PAGE, Car.class);
+            } else {
+                query = session.createNamedQuery(Car.FIND_PAGE_AFTER, Car.class);
+                query.setParameter("lastId", lastId);
+            }
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, "Error when SELECT page of cars from CarsDB", ex);
+            throw new TransactionException("Error when SELECT page of cars from CarsDB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public void setCarAvailability(String carID, boolean available) throws TransactionException {
+        if (null == carID) {
+            throw new IllegalArgumentException("Can't UPDATE Car with NULL ID");
+        }
+        if (!setAvailable(carID, available)) {
+            throw new TransactionException("Car with ID " + carID + " does not exist");
+        }
+    }
+
+    @Override
+    public int setCarsAvailability(Collection<String> carIDs, boolean available) throws TransactionException {
+        if (null == carIDs) {
+            throw new IllegalArgumentException("Can't UPDATE NULL collection in CarDB");
+        }
+        Set<String> ids = new HashSet<>();
+        for (String carID : carIDs) {
+            if (null == carID) {
+                throw new IllegalArgumentException("Can't UPDATE Car with NULL ID");
+            }
+            ids.add(carID);
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        if (ids.size() == 1) {
+            return setAvailable(ids.iterator().next(), available) ? 1 : 0;
+        }
+        return updateAvailable(ids, available);
+    }
+
+    private boolean setAvailable(String carID, boolean available) throws TransactionException {
+        // The car is dirty checked, @DynamicUpdate writes only the flag column and only this car is
+        // updated in the second-level cache instead of the bulk UPDATE evicting the whole region
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            Car car = session.get(Car.class, carID);
+            if (null != car) {
+                car.available(available);
+            }
+            transaction.commit();
+            logger.log(Level.INFO, ("Car " + carID + " set " + (available ? "available" : "unavailable")));
+            return null != car;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.log(Level.SEVERE, "Error UPDATE available flag of Car in CarDB", ex);
+            throw new TransactionException("Error UPDATE available flag of Car in CarDB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    private int updateAvailable(Collection<String> ids, boolean available) throws TransactionException {
+        // A bulk UPDATE touches only the flag column and skips loading, validating and merging the entities,
+        // but Hibernate evicts the whole Car region of the second-level cache after it
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            int updated = session.createNamedMutationQuery(Car.SET_AVAILABILITY)
+                .setParameter("available", available)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+            transaction.commit();
+            logger.log(Level.INFO, (updated + " Cars set " + (available ? "available" : "unavailable")));
+            return updated;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.log(Level.SEVERE, "Error UPDATE available flag of Cars in CarDB", ex);
+            throw new TransactionException("Error UPDATE available flag of Cars in CarDB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Car> addCars(Collection<Car> cars) throws TransactionException {
+        if (null == cars) {
+            throw new IllegalArgumentException("Can not INSERT NULL collection to CARS");
+        }
+
+        BatchResult<Car> result = new BatchResult<>();
+        Map<String, Car> carsByPlate = new LinkedHashMap<>();
+        for (Car car : cars) {
+            try {
+                checkCarToAdd(car);
+                if (carsByPlate.putIfAbsent(car.licensePlate(), car) != null) {
+                    throw new IllegalArgumentException("Car with duplicate license plate");
+                }
+            } catch (IllegalArgumentException ex) {
+                result.rejected(car, ex);
+            }
+        }
+        if (carsByPlate.isEmpty()) {
+            return result;
+        }
+
+        int batchSize = HibernateSessionFactory.getJdbcBatchSize();
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Set<String> takenPlates = new HashSet<>(session.createNamedQuery(Car.FIND_TAKEN_PLATES, String.class)
+                .setParameterList("plates", carsByPlate.keySet())
+                .list());
+
+            int pending = 0;
+            for (Car car : carsByPlate.values()) {
+                if (takenPlates.contains(car.licensePlate())) {
+                    result.rejected(car, new IllegalArgumentException("Car with duplicate license plate"));
+                    continue;
+                }
+                session.persist(car);
+                result.written(car);
+                if (++pending % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+            logger.log(Level.INFO, (result.written().size() + " new Cars added"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
+            logger.log(Level.SEVERE, "Error when INSERT Cars into DB", ex);
+            throw new TransactionException("Error when INSERT Cars into DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Car> updateCars(Collection<Car> cars) throws TransactionException {
+        if (null == cars) {
+            throw new IllegalArgumentException("Can't UPDATE NULL collection in CarDB");
+        }
+
+        BatchResult<Car> result = new BatchResult<>();
+        Map<String, Car> carsById = new LinkedHashMap<>();
+        Set<String> plates = new HashSet<>();
+        for (Car car : cars) {
+            try {
+                checkCarToUpdate(car);
+                if (carsById.containsKey(car.uuid())) {
+                    throw new IllegalArgumentException("Car with ID " + car.uuid() + " updated twice in one batch");
+                }
+                if (!plates.add(car.licensePlate())) {
+                    throw new IllegalArgumentException("Car with duplicate license plate");
+                }
+                carsById.put(car.uuid(), car);
+            } catch (IllegalArgumentException ex) {
+                result.rejected(car, ex);
+            }
+        }
+        if (carsById.isEmpty()) {
+            return result;
+        }
+
+        int batchSize = HibernateSessionFactory.getJdbcBatchSize();
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Map<String, String> plateOwners = new HashMap<>();
+            for (Object[] row : session.createNamedQuery(Car.FIND_PLATE_OWNERS, Object[].class)
+                    .setParameterList("plates", plates)
+                    .list()) {
+                plateOwners.put((String) row[0], (String) row[1]);
+            }
+
+            // Loading the stored cars up front lets merge() copy state without a SELECT per car
+            Set<String> existingIds = new HashSet<>();
+            for (Car stored : session.createNamedQuery(Car.FIND_BY_IDS, Car.class)
+                    .setParameterList("ids", carsById.keySet())
+                    .list()) {
+                existingIds.add(stored.uuid());
+            }
+
+            int pending = 0;
+            for (Car car : carsById.values()) {
+                String owner = plateOwners.get(car.licensePlate());
+                if (owner != null && !owner.equals(car.uuid())) {
+                    result.rejected(car, new IllegalArgumentException("Car with duplicate license plate"));
+                    continue;
+                }
+                if (!existingIds.contains(car.uuid())) {
+                    result.rejected(car, new TransactionException("Car with ID " + car.uuid() + " does not exist"));
+                    continue;
+                }
+                session.merge(car);
+                result.written(car);
+                if (++pending % batchSize == 0) {
+                    session.flush();
+                }
+            }
+            transaction.commit();
+            logger.log(Level.INFO, (result.written().size() + " Cars updated"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
+            logger.log(Level.SEVERE, "Error UPDATE Cars in DB", ex);
+            throw new TransactionException("Error UPDATE Cars in DB", ex);
         } finally {
             session.close();
         }
     }
 
+    @Override
+    public BatchResult<Car> removeCars(Collection<Car> cars) throws TransactionException {
+        if (null == cars) {
+            throw new IllegalArgumentException("Can't DELETE NULL collection from CarDB");
+        }
+
+        BatchResult<Car> result = new BatchResult<>();
+        Map<String, Car> carsById = new LinkedHashMap<>();
+        for (Car car : cars) {
+            try {
+                checkCarToRemove(car);
+                carsById.putIfAbsent(car.uuid(), car);
+            } catch (IllegalArgumentException ex) {
+                result.rejected(car, ex);
+            }
+        }
+        if (carsById.isEmpty()) {
+            return result;
+        }
+
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Set<String> existingIds = new HashSet<>(session.createNamedQuery(Car.FIND_EXISTING_IDS, String.class)
+                .setParameterList("ids", carsById.keySet())
+                .list());
+
+            for (Car car : carsById.values()) {
+                if (existingIds.contains(car.uuid())) {
+                    result.written(car);
+                } else {
+                    result.rejected(car, new TransactionException("Given Car does not exist in DB" + car));
+                }
+            }
+            if (!existingIds.isEmpty()) {
+                session.createNamedMutationQuery(Car.DELETE_BY_IDS)
+                    .setParameterList("ids", existingIds)
+                    .executeUpdate();
+            }
+            transaction.commit();
+            logger.log(Level.INFO, (result.written().size() + " Cars removed"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.log(Level.SEVERE, "Error when DELETE Cars from DB", ex);
+            throw new TransactionException("Error when DELETE Cars from DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    private static void checkCarToAdd(Car car) {
+        if (null == car) {
+            throw new IllegalArgumentException("Can not INSERT NULL ENTRY to CARS");
+        }
+        if (null == car.uuid()) {
+            throw new IllegalArgumentException("Car ID is NULL");
+        }
+        if (!UuidStringJavaType.isValid(car.uuid())) {
+            throw new IllegalArgumentException("Car ID is not a valid UUID");
+        }
+        if ((null == car.color()) || (null == car.licensePlate()) || (null == car.model())
+                || (null == car.rentalPayment()) || (car.rentalPayment() < 0)) {
+            throw new IllegalArgumentException("Car with WRONG PARAMETERS");
+        }
+    }
+
+    private static void checkCarToUpdate(Car car) {
+        if (null == car) {
+            throw new IllegalArgumentException("Can't INSERT NULL ENTRY to CarDB");
+        }
+        if (null == car.uuid()) {
+            throw new IllegalArgumentException("Can't UPDATE Car with NULL ID");
+        }
+        if ((null == car.color()) || (null == car.licensePlate()) || (null == car.model())
+                || (null == car.rentalPayment()) || (car.rentalPayment() < 0) || (null == car.available())) {
+            throw new IllegalArgumentException("Car with WRONG PARAMETRS");
+        }
+    }
+
+    private static void checkCarToRemove(Car car) {
+        if (null == car) {
+            throw new IllegalArgumentException("Can't DELETE NULL ENTRY from CarDB");
+        }
+        if (null == car.uuid()) {
+            throw new IllegalArgumentException("Can't DELETE Car with NO ID");
+        }
+        if (!car.available()) {
+            throw new IllegalArgumentException("Can't DELETE rented Car");
+        }
+    }
+
     public void tryCreateTables() {
         try {
-            // Hibernate auto-creates tables based on hibernate.cfg.xml hbm2ddl.auto setting
+            // Building the SessionFactory applies pending schema migrations, see SchemaMigrations
             HibernateSessionFactory.getSessionFactory().openSession().close();
         } catch (Exception ex) {
             throw new IllegalStateException("Error when trying to create tables", ex);
@@ -0,0 +1,25 @@
+package cz.muni.fi.pv168;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a successful {@link RentManager#getCarFromCustomer(Car, Customer)}.
+ */
+@Name("cz.muni.fi.pv168.CarReturned")
+@Label("Car Returned")
+@Category({"Car Rental", "Rentals"})
+@Description("Car taken back from a customer, the rents of the pair are closed")
+final class CarReturnedEvent extends jdk.jfr.Event {
+
+    @Label("Car")
+    String carId;
+
+    @Label("Customer")
+    String customerId;
+
+    @Label("Rents Closed")
+    int rentsClosed;
+}
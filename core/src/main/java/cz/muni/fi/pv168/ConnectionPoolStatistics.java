@@ -0,0 +1,18 @@
+package cz.muni.fi.pv168;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the JDBC connection pool: connections in use and idle, and the acquisition counters.
+ */
+public record ConnectionPoolStatistics(int active, int idle, int maxTotal, long acquisitions,
+                                       long totalWaitNanos, long maxWaitNanos, long timeouts, long leaks) {
+
+    public double averageWaitMillis() {
+        return acquisitions == 0 ? 0.0 : (double) totalWaitNanos / acquisitions / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double maxWaitMillis() {
+        return (double) maxWaitNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,79 @@
+package cz.muni.fi.pv168;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+
+/**
+ * Translates violations of the database constraints that keep the rental data consistent into the
+ * IllegalArgumentException the managers throw for invalid arguments. Writes are checked by the constraints
+ * instead of by a query issued before the write, so they need one statement and concurrent writers
+ * cannot both pass the check.
+ */
+final class ConstraintViolations {
+
+    static final String CAR_LICENSE_PLATE = "cars_license_plate_key";
+    static final String CUSTOMER_DRIVERS_LICENSE = "customers_drivers_license_key";
+    static final String RENT_NO_OVERLAP = "rents_no_overlap";
+
+    // SQLSTATE class of integrity constraint violations (23505 unique, 23P01 exclusion, ...)
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private static final Map<String, String> MESSAGES = new LinkedHashMap<>();
+
+    static {
+        MESSAGES.put(CAR_LICENSE_PLATE, "Car with duplicate license plate");
+        MESSAGES.put(CUSTOMER_DRIVERS_LICENSE, "Customer with duplicate driver's license");
+        MESSAGES.put(RENT_NO_OVERLAP, "Car is already rented for the selected period");
+    }
+
+    private ConstraintViolations() {
+    }
+
+    /**
+     * Get the exception to throw for a write that failed on one of the constraints above.
+     *
+     * @param ex exception thrown by the write or by the commit
+     * @return IllegalArgumentException with the manager's message for the violated constraint,
+     *         or null when the exception was not caused by one of these constraints
+     */
+    static IllegalArgumentException translate(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                for (SQLException next = sqlException; next != null; next = next.getNextException()) {
+                    String constraint = violatedConstraint(next);
+                    if (constraint != null) {
+                        return new IllegalArgumentException(MESSAGES.get(constraint), ex);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String violatedConstraint(SQLException ex) {
+        String state = ex.getSQLState();
+        if (state == null || !state.startsWith(INTEGRITY_CONSTRAINT_VIOLATION) || ex.getMessage() == null) {
+            return null;
+        }
+        // PostgreSQL reports the violated constraint as a field of the error, independent of the server's locale
+        if (ex instanceof PSQLException psqlException) {
+            ServerErrorMessage error = psqlException.getServerErrorMessage();
+            if (error != null && error.getConstraint() != null) {
+                String constraint = error.getConstraint().toLowerCase(Locale.ROOT);
+                return MESSAGES.containsKey(constraint) ? constraint : null;
+            }
+        }
+        // Wrappers such as the BatchUpdateException of a batch only repeat the message, which names the constraint
+        String message = ex.getMessage().toLowerCase(Locale.ROOT);
+        for (String constraint : MESSAGES.keySet()) {
+            if (message.contains(constraint)) {
+                return constraint;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,143 @@
+package cz.muni.fi.pv168;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Publishes the rows of a database cursor stream, such as {@link RentManager#streamAllRents()}.
+ * Rows are pulled from the cursor only while the subscriber has outstanding demand, so a slow
+ * subscriber keeps the cursor waiting and at most one JDBC fetch is buffered at a time.
+ *
+ * Every subscriber gets its own stream. It is opened on the first request and closed on completion,
+ * error or cancellation. Signals are delivered from the executor, never from the requesting thread.
+ */
+public class CursorPublisher<T> implements Flow.Publisher<T> {
+
+    /**
+     * Runs every drain on a new virtual thread, so a blocked cursor never holds a platform thread.
+     */
+    public static final Executor VIRTUAL_THREADS = command -> Thread.ofVirtual().name("db-cursor").start(command);
+
+    private final Supplier<Stream<T>> streamFactory;
+    private final Executor executor;
+
+    public CursorPublisher(Supplier<Stream<T>> streamFactory, Executor executor) {
+        this.streamFactory = streamFactory;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber is NULL");
+        subscriber.onSubscribe(new CursorSubscription<>(subscriber, streamFactory, executor));
+    }
+
+    private static final class CursorSubscription<T> implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Supplier<Stream<T>> streamFactory;
+        private final Executor executor;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+
+        // Only used by the drain loop, which never runs concurrently with itself
+        private Stream<T> stream;
+        private Iterator<T> rows;
+        private boolean done;
+
+        private CursorSubscription(Flow.Subscriber<? super T> subscriber, Supplier<Stream<T>> streamFactory, Executor executor) {
+            this.subscriber = subscriber;
+            this.streamFactory = streamFactory;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Subscriber must request a positive number of rows, requested " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                close();
+                return;
+            }
+            if (invalidRequest != null) {
+                close();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            try {
+                if (rows == null) {
+                    if (demand.get() == 0) {
+                        return;
+                    }
+                    stream = streamFactory.get();
+                    rows = stream.iterator();
+                }
+                while (demand.get() > 0 && !cancelled && rows.hasNext()) {
+                    T row = rows.next();
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(row);
+                }
+                if (cancelled) {
+                    close();
+                } else if (!rows.hasNext()) {
+                    close();
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException ex) {
+                close();
+                subscriber.onError(ex);
+            }
+        }
+
+        private void close() {
+            done = true;
+            rows = null;
+            if (stream != null) {
+                Stream<T> opened = stream;
+                stream = null;
+                opened.close();
+            }
+        }
+    }
+}
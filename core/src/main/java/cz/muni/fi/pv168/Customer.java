@@ -1,23 +1,60 @@
 package cz.muni.fi.pv168;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.Accessors;
-import java.util.UUID;
 
 @Entity
-@Table(name = "customers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
+@Table(name = "customers", uniqueConstraints =
+        @UniqueConstraint(name = ConstraintViolations.CUSTOMER_DRIVERS_LICENSE, columnNames = "drivers_license"))
+@NamedQuery(name = Customer.FIND_ACTIVE, query = "FROM Customer WHERE active = true")
+@NamedQuery(name = Customer.FIND_ALL, query = "FROM Customer")
+@NamedQuery(name = Customer.FIND_FIRST_PAGE, query = "FROM Customer e ORDER BY e.uuid")
+@NamedQuery(name = Customer.FIND_PAGE_AFTER, query = "FROM Customer e WHERE e.uuid > :lastId ORDER BY e.uuid")
+@NamedQuery(name = Customer.FIND_TAKEN_LICENSES,
+        query = "SELECT c.driversLicense FROM Customer c WHERE c.driversLicense IN :licenses")
+@NamedQuery(name = Customer.FIND_LICENSE_OWNERS,
+        query = "SELECT c.driversLicense, c.uuid FROM Customer c WHERE c.driversLicense IN :licenses")
+@NamedQuery(name = Customer.FIND_BY_IDS, query = "FROM Customer c WHERE c.uuid IN :ids")
+@NamedQuery(name = Customer.FIND_EXISTING_IDS, query = "SELECT c.uuid FROM Customer c WHERE c.uuid IN :ids")
+@NamedQuery(name = Customer.DELETE_BY_IDS, query = "DELETE FROM Customer c WHERE c.uuid IN :ids")
+@NamedQuery(name = Customer.SET_ACTIVE, query = "UPDATE Customer c SET c.active = :active WHERE c.uuid IN :ids")
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @EqualsAndHashCode
 @Accessors(fluent = true)
 public class Customer {
+    // Names of the queries declared above, Hibernate parses and validates them when the SessionFactory is built
+    public static final String FIND_ACTIVE = "Customer.findActive";
+    public static final String FIND_ALL = "Customer.findAll";
+    public static final String FIND_FIRST_PAGE = "Customer.findFirstPage";
+    public static final String FIND_PAGE_AFTER = "Customer.findPageAfter";
+    public static final String FIND_TAKEN_LICENSES = "Customer.findTakenLicenses";
+    public static final String FIND_LICENSE_OWNERS = "Customer.findLicenseOwners";
+    public static final String FIND_BY_IDS = "Customer.findByIds";
+    public static final String FIND_EXISTING_IDS = "Customer.findExistingIds";
+    public static final String DELETE_BY_IDS = "Customer.deleteByIds";
+    public static final String SET_ACTIVE = "Customer.setActive";
+
     @Id
     @Column(name = "id")
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
     private String uuid;
 
     @Column(name = "first_name")
@@ -36,14 +73,15 @@ public class Customer {
     private String driversLicense;
 
     @Column(name = "status")
+    @Setter(AccessLevel.PACKAGE)
     private Boolean active;
 
     /**
-     * Factory method for creating new Customer instances with auto-generated UUID.
+     * Factory method for creating new Customer instances with auto-generated time-ordered UUID.
      * Use this when creating customers to be saved to the database.
      */
     public static Customer create(String firstName, String lastName, String address, String phoneNumber, String driversLicense, Boolean active) {
-        return new Customer(UUID.randomUUID().toString(), firstName, lastName, address, phoneNumber, driversLicense, active);
+        return new Customer(UuidV7.generate().toString(), firstName, lastName, address, phoneNumber, driversLicense, active);
     }
 
     public Customer withUuid(String uuid) {
@@ -1,7 +1,9 @@
 package cz.muni.fi.pv168;
 
 import java.io.FileOutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 public interface CustomerManager {
@@ -16,8 +18,39 @@ public interface CustomerManager {
 
     public void updateCustomerInfo(Customer customer) throws IllegalArgumentException, TransactionException;
 
+    /**
+     * Sets only the activity flag of the customer with the given ID. Only the active column is updated and
+     * the cached customer is updated in place.
+     */
+    public void setCustomerActive(String customerID, boolean active) throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Sets the activity flag of all customers with the given IDs in a single UPDATE statement.
+     * Returns the number of updated customers, IDs without a stored customer are skipped.
+     * For more than one ID the bulk UPDATE evicts all customers from the second-level cache.
+     */
+    public int setCustomersActive(Collection<String> customerIDs, boolean active) throws IllegalArgumentException, TransactionException;
+
+    public BatchResult<Customer> addCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException;
+
+    public BatchResult<Customer> updateCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException;
+
+    public BatchResult<Customer> removeCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException;
+
     public List<Customer> getActiveCustomers() throws IllegalArgumentException, TransactionException;
 
+    /**
+     * Streams all customers from the database cursor instead of loading the whole table.
+     * The stream holds an open database session and must be closed by the caller.
+     */
+    public Stream<Customer> streamAllCustomers() throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Returns at most {@code limit} customers ordered by ID whose ID is greater than {@code lastId}.
+     * Pass {@code null} to get the first page and the ID of the last returned entry to get the next one.
+     */
+    public List<Customer> getCustomersAfter(String lastId, int limit) throws IllegalArgumentException, TransactionException;
+
     public void setDataSource(DataSource ds);
 
     public void setLogger(FileOutputStream fs);
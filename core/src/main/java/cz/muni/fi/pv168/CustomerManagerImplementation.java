@@ -1,12 +1,20 @@
 package cz.muni.fi.pv168;
 
 import java.io.FileOutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 import java.util.logging.StreamHandler;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 import javax.sql.DataSource;
@@ -21,29 +29,13 @@ public class CustomerManagerImplementation implements CustomerManager {
 
     @Override
     public void addCustomer(Customer customer) throws IllegalArgumentException, TransactionException {
-        if (null == customer) {
-            throw new IllegalArgumentException("Can't INSERT NULL entry");
-        }
-        if (null == customer.uuid()) {
-            throw new IllegalArgumentException("Customer ID is NULL");
-        }
-        if (null == customer.firstName() || null == customer.lastName() || null == customer.address() || null == customer.phoneNumber()
-                || null == customer.driversLicense()) {
-            throw new IllegalArgumentException("Customer with WRONG PARAMETERS");
-        }
+        checkCustomerToAdd(customer);
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            
-            Query<Long> licenseQuery = session.createQuery(
-                "SELECT count(c) FROM Customer c WHERE c.driversLicense = :license", Long.class);
-            licenseQuery.setParameter("license", customer.driversLicense());
-            if (licenseQuery.uniqueResult() > 0) {
-                throw new IllegalArgumentException("Customer with duplicate driver's license");
-            }
-
+            // A duplicate driver's license is rejected by the customers_drivers_license_key constraint
             session.persist(customer);
             transaction.commit();
             logger.log(Level.INFO, ("New Customer ID " + customer.uuid() + " added"));
@@ -56,6 +48,10 @@ public class CustomerManagerImplementation implements CustomerManager {
             if (transaction != null) {
                 transaction.rollback();
             }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
             logger.log(Level.SEVERE, "Error INSERT Customer to DB", ex);
             throw new TransactionException("Error INSERT Customer to DB", ex);
         } finally {
@@ -65,17 +61,9 @@ public class CustomerManagerImplementation implements CustomerManager {
 
     @Override
     public void removeCustomer(Customer customer) throws IllegalArgumentException, TransactionException {
-        if (null == customer) {
-            throw new IllegalArgumentException("Can not DELETE NULL ENTRY from Customers");
-        }
-        if (null == customer.uuid()) {
-            throw new IllegalArgumentException("Can't DELETE Customer with NULL ID");
-        }
-        if (customer.active()) {
-            throw new IllegalArgumentException("Can't DELETE active Customer");
-        }
+        checkCustomerToRemove(customer);
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
@@ -108,7 +96,7 @@ public class CustomerManagerImplementation implements CustomerManager {
             throw new IllegalArgumentException("Can't find Customer with NULL ID");
         }
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openReadOnlySession();
         try {
             Customer customer = session.get(Customer.class, ID);
             return customer;
@@ -122,44 +110,22 @@ public class CustomerManagerImplementation implements CustomerManager {
 
     @Override
     public List<Customer> getAllCustomers() throws IllegalArgumentException, TransactionException {
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
         try {
-            Query<Customer> query = session.createQuery("FROM Customer", Customer.class);
-            return query.list();
+            return RentalUnitOfWork.read(session -> session.createNamedQuery(Customer.FIND_ALL, Customer.class).list());
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Error when getting all Customers", ex);
             throw new TransactionException("Error when getting all Customers", ex);
-        } finally {
-            session.close();
         }
     }
 
     @Override
     public void updateCustomerInfo(Customer customer) throws IllegalArgumentException, TransactionException {
-        if (null == customer) {
-            throw new IllegalArgumentException("Can't UPDATE NULL ENTRY to CustomersDB");
-        }
-        if (null == customer.uuid()) {
-            throw new IllegalArgumentException("Can't UPDATE Customer with WRONG ID");
-        }
-        if ((null == customer.firstName()) || (null == customer.lastName()) || (null == customer.address())
-                || (null == customer.phoneNumber()) || (null == customer.driversLicense())) {
-            throw new IllegalArgumentException("Customer with WRONG PARAMETRS");
-        }
+        checkCustomerToUpdate(customer);
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            
-            Query<Long> licenseQuery = session.createQuery(
-                "SELECT count(c) FROM Customer c WHERE c.driversLicense = :license AND c.uuid != :id", Long.class);
-            licenseQuery.setParameter("license", customer.driversLicense());
-            licenseQuery.setParameter("id", customer.uuid());
-            if (licenseQuery.uniqueResult() > 0) {
-                throw new IllegalArgumentException("Customer with duplicate driver's license");
-            }
-
             if (session.get(Customer.class, customer.uuid()) == null) {
                 throw new TransactionException("Customer with ID " + customer.uuid() + " does not exist");
             }
@@ -175,6 +141,10 @@ public class CustomerManagerImplementation implements CustomerManager {
             if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
             logger.log(Level.SEVERE, "Error when UPDATE Customer in DB", ex);
             throw new TransactionException("Error when UPDATE Customer in DB", ex);
         } finally {
@@ -184,10 +154,10 @@ public class CustomerManagerImplementation implements CustomerManager {
 
     @Override
     public List<Customer> getActiveCustomers() throws IllegalArgumentException, TransactionException {
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openReadOnlySession();
         try {
-            Query<Customer> query = session.createQuery(
-                    "FROM Customer WHERE active = true", Customer.class);
+            Query<Customer> query = session.createNamedQuery(Customer.FIND_ACTIVE, Customer.class);
+            query.setCacheable(true);
             return query.list();
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Error when getting all Customers from DB", ex);
@@ -197,9 +167,383 @@ public class CustomerManagerImplementation implements CustomerManager {
         }
     }
 
+    @Override
+    public Stream<Customer> streamAllCustomers() throws IllegalArgumentException, TransactionException {
+        // A stateless session keeps no persistence context, so streamed rows do not pile up in memory.
+        // PostgreSQL only honours the fetch size inside a transaction, otherwise it reads the whole result at once.
+        StatelessSession session = HibernateSessionFactory.getSessionFactory().openStatelessSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            Query<Customer> query = session.createNamedQuery(Customer.FIND_ALL, Customer.class);
+            query.setFetchSize(HibernateSessionFactory.getJdbcFetchSize());
+            return query.stream().onClose(() -> {
+                try {
+                    transaction.rollback();
+                } finally {
+                    session.close();
+                }
+            });
+        } catch (Exception ex) {
+            session.close();
+            logger.log(Level.SEVERE, "Error when streaming Customers from DB", ex);
+            throw new TransactionException("Error when streaming Customers from DB", ex);
+        }
+    }
+
+    @Override
+    public List<Customer> getCustomersAfter(String lastId, int limit) throws IllegalArgumentException, TransactionException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        if (null != lastId && !UuidStringJavaType.isValid(lastId)) {
+            throw new IllegalArgumentException("Page cursor is not a valid ID");
+        }
+
+        Session session = RentalUnitOfWork.openSession();
+        try {
+            Query<Customer> query;
+            if (null == lastId) {
+                query = session.createNamedQuery(Customer.FIND_FIRST_PAGE, Customer.class);
+            } else {
+                query = session.createNamedQuery(Customer.FIND_PAGE_AFTER, Customer.class);
+                query.setParameter("lastId", lastId);
+            }
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, "Error when getting page of Customers from DB", ex);
+            throw new TransactionException("Error when getting page of Customers from DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public void setCustomerActive(String customerID, boolean active) throws IllegalArgumentException, TransactionException {
+        if (null == customerID) {
+            throw new IllegalArgumentException("Can't UPDATE Customer with NULL ID");
+        }
+        if (!setActive(customerID, active)) {
+            throw new TransactionException("Customer with ID " + customerID + " does not exist");
+        }
+    }
+
+    @Override
+    public int setCustomersActive(Collection<String> customerIDs, boolean active) throws IllegalArgumentException, TransactionException {
+        if (null == customerIDs) {
+            throw new IllegalArgumentException("Can't UPDATE NULL collection in CustomerDB");
+        }
+        Set<String> ids = new HashSet<>();
+        for (String customerID : customerIDs) {
+            if (null == customerID) {
+                throw new IllegalArgumentException("Can't UPDATE Customer with NULL ID");
+            }
+            ids.add(customerID);
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        if (ids.size() == 1) {
+            return setActive(ids.iterator().next(), active) ? 1 : 0;
+        }
+        return updateActive(ids, active);
+    }
+
+    private boolean setActive(String customerID, boolean active) throws TransactionException {
+        // The customer is dirty checked, @DynamicUpdate writes only the flag column and only this customer
+        // is updated in the second-level cache instead of the bulk UPDATE evicting the whole region
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            Customer customer = session.get(Customer.class, customerID);
+            if (null != customer) {
+                customer.active(active);
+            }
+            transaction.commit();
+            logger.log(Level.INFO, ("Customer " + customerID + " set " + (active ? "active" : "inactive")));
+            return null != customer;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.log(Level.SEVERE, "Error UPDATE active flag of Customer in CustomerDB", ex);
+            throw new TransactionException("Error UPDATE active flag of Customer in CustomerDB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    private int updateActive(Collection<String> ids, boolean active) throws TransactionException {
+        // A bulk UPDATE touches only the flag column and skips loading, validating and merging the entities,
+        // but Hibernate evicts the whole Customer region of the second-level cache after it
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+            int updated = session.createNamedMutationQuery(Customer.SET_ACTIVE)
+                .setParameter("active", active)
+                .setParameterList("ids", ids)
+                .executeUpdate();
+            transaction.commit();
+            logger.log(Level.INFO, (updated + " Customers set " + (active ? "active" : "inactive")));
+            return updated;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.log(Level.SEVERE, "Error UPDATE active flag of Customers in CustomerDB", ex);
+            throw new TransactionException("Error UPDATE active flag of Customers in CustomerDB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Customer> addCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException {
+        if (null == customers) {
+            throw new IllegalArgumentException("Can't INSERT NULL collection");
+        }
+
+        BatchResult<Customer> result = new BatchResult<>();
+        Map<String, Customer> customersByLicense = new LinkedHashMap<>();
+        for (Customer customer : customers) {
+            try {
+                checkCustomerToAdd(customer);
+                if (customersByLicense.putIfAbsent(customer.driversLicense(), customer) != null) {
+                    throw new IllegalArgumentException("Customer with duplicate driver's license");
+                }
+            } catch (IllegalArgumentException ex) {
+                result.rejected(customer, ex);
+            }
+        }
+        if (customersByLicense.isEmpty()) {
+            return result;
+        }
+
+        int batchSize = HibernateSessionFactory.getJdbcBatchSize();
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Set<String> takenLicenses = new HashSet<>(session.createNamedQuery(Customer.FIND_TAKEN_LICENSES, String.class)
+                .setParameterList("licenses", customersByLicense.keySet())
+                .list());
+
+            int pending = 0;
+            for (Customer customer : customersByLicense.values()) {
+                if (takenLicenses.contains(customer.driversLicense())) {
+                    result.rejected(customer, new IllegalArgumentException("Customer with duplicate driver's license"));
+                    continue;
+                }
+                session.persist(customer);
+                result.written(customer);
+                if (++pending % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+            logger.log(Level.INFO, (result.written().size() + " new Customers added"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
+            logger.log(Level.SEVERE, "Error INSERT Customers to DB", ex);
+            throw new TransactionException("Error INSERT Customers to DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Customer> updateCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException {
+        if (null == customers) {
+            throw new IllegalArgumentException("Can't UPDATE NULL collection in CustomersDB");
+        }
+
+        BatchResult<Customer> result = new BatchResult<>();
+        Map<String, Customer> customersById = new LinkedHashMap<>();
+        Set<String> licenses = new HashSet<>();
+        for (Customer customer : customers) {
+            try {
+                checkCustomerToUpdate(customer);
+                if (customersById.containsKey(customer.uuid())) {
+                    throw new IllegalArgumentException("Customer with ID " + customer.uuid() + " updated twice in one batch");
+                }
+                if (!licenses.add(customer.driversLicense())) {
+                    throw new IllegalArgumentException("Customer with duplicate driver's license");
+                }
+                customersById.put(customer.uuid(), customer);
+            } catch (IllegalArgumentException ex) {
+                result.rejected(customer, ex);
+            }
+        }
+        if (customersById.isEmpty()) {
+            return result;
+        }
+
+        int batchSize = HibernateSessionFactory.getJdbcBatchSize();
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Map<String, String> licenseOwners = new HashMap<>();
+            for (Object[] row : session.createNamedQuery(Customer.FIND_LICENSE_OWNERS, Object[].class)
+                    .setParameterList("licenses", licenses)
+                    .list()) {
+                licenseOwners.put((String) row[0], (String) row[1]);
+            }
+
+            // Loading the stored customers up front lets merge() copy state without a SELECT per customer
+            Set<String> existingIds = new HashSet<>();
+            for (Customer stored : session.createNamedQuery(Customer.FIND_BY_IDS, Customer.class)
+                    .setParameterList("ids", customersById.keySet())
+                    .list()) {
+                existingIds.add(stored.uuid());
+            }
+
+            int pending = 0;
+            for (Customer customer : customersById.values()) {
+                String owner = licenseOwners.get(customer.driversLicense());
+                if (owner != null && !owner.equals(customer.uuid())) {
+                    result.rejected(customer, new IllegalArgumentException("Customer with duplicate driver's license"));
+                    continue;
+                }
+                if (!existingIds.contains(customer.uuid())) {
+                    result.rejected(customer, new TransactionException("Customer with ID " + customer.uuid() + " does not exist"));
+                    continue;
+                }
+                session.merge(customer);
+                result.written(customer);
+                if (++pending % batchSize == 0) {
+                    session.flush();
+                }
+            }
+            transaction.commit();
+            logger.log(Level.INFO, (result.written().size() + " Customers updated"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                throw violation;
+            }
+            logger.log(Level.SEVERE, "Error when UPDATE Customers in DB", ex);
+            throw new TransactionException("Error when UPDATE Customers in DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Customer> removeCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException {
+        if (null == customers) {
+            throw new IllegalArgumentException("Can not DELETE NULL collection from Customers");
+        }
+
+        BatchResult<Customer> result = new BatchResult<>();
+        Map<String, Customer> customersById = new LinkedHashMap<>();
+        for (Customer customer : customers) {
+            try {
+                checkCustomerToRemove(customer);
+                customersById.putIfAbsent(customer.uuid(), customer);
+            } catch (IllegalArgumentException ex) {
+                result.rejected(customer, ex);
+            }
+        }
+        if (customersById.isEmpty()) {
+            return result;
+        }
+
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Set<String> existingIds = new HashSet<>(session.createNamedQuery(Customer.FIND_EXISTING_IDS, String.class)
+                .setParameterList("ids", customersById.keySet())
+                .list());
+
+            for (Customer customer : customersById.values()) {
+                if (existingIds.contains(customer.uuid())) {
+                    result.written(customer);
+                } else {
+                    result.rejected(customer, new IllegalArgumentException("Can't locate Customer in DB"));
+                }
+            }
+            if (!existingIds.isEmpty()) {
+                session.createNamedMutationQuery(Customer.DELETE_BY_IDS)
+                    .setParameterList("ids", existingIds)
+                    .executeUpdate();
+            }
+            transaction.commit();
+            logger.log(Level.INFO, (result.written().size() + " Customers removed"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.log(Level.SEVERE, "Error DELETE Customers from DB", ex);
+            throw new TransactionException("Error DELETE Customers from DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    private static void checkCustomerToAdd(Customer customer) {
+        if (null == customer) {
+            throw new IllegalArgumentException("Can't INSERT NULL entry");
+        }
+        if (null == customer.uuid()) {
+            throw new IllegalArgumentException("Customer ID is NULL");
+        }
+        if (!UuidStringJavaType.isValid(customer.uuid())) {
+            throw new IllegalArgumentException("Customer ID is not a valid UUID");
+        }
+        if (null == customer.firstName() || null == customer.lastName() || null == customer.address() || null == customer.phoneNumber()
+                || null == customer.driversLicense()) {
+            throw new IllegalArgumentException("Customer with WRONG PARAMETERS");
+        }
+    }
+
+    private static void checkCustomerToUpdate(Customer customer) {
+        if (null == customer) {
+            throw new IllegalArgumentException("Can't UPDATE NULL ENTRY to CustomersDB");
+        }
+        if (null == customer.uuid()) {
+            throw new IllegalArgumentException("Can't UPDATE Customer with WRONG ID");
+        }
+        if ((null == customer.firstName()) || (null == customer.lastName()) || (null == customer.address())
+                || (null == customer.phoneNumber()) || (null == customer.driversLicense())) {
+            throw new IllegalArgumentException("Customer with WRONG PARAMETRS");
+        }
+    }
+
+    private static void checkCustomerToRemove(Customer customer) {
+        if (null == customer) {
+            throw new IllegalArgumentException("Can not DELETE NULL ENTRY from Customers");
+        }
+        if (null == customer.uuid()) {
+            throw new IllegalArgumentException("Can't DELETE Customer with NULL ID");
+        }
+        if (customer.active()) {
+            throw new IllegalArgumentException("Can't DELETE active Customer");
+        }
+    }
+
     public void tryCreateTables() {
         try {
-            // Hibernate auto-creates tables based on hibernate.cfg.xml hbm2ddl.auto setting
+            // Building the SessionFactory applies pending schema migrations, see SchemaMigrations
             HibernateSessionFactory.getSessionFactory().openSession().close();
         } catch (Exception ex) {
             throw new IllegalStateException("Error when trying to create tables", ex);
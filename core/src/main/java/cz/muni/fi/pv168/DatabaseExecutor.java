@@ -0,0 +1,87 @@
+package cz.muni.fi.pv168;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs blocking manager calls on virtual threads.
+ * Every task gets its own virtual thread, so callers can fan out many lookups cheaply, while a
+ * semaphore bounds how many of them touch the database at once. Tasks beyond the bound park their
+ * virtual thread until a permit is free instead of queueing for a pooled connection.
+ */
+public class DatabaseExecutor implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("db-task-", 0).factory());
+    private final Semaphore permits;
+    private final int maxConcurrentTasks;
+
+    /**
+     * Creates an executor bounded by the size of the configured connection pool.
+     */
+    public DatabaseExecutor() {
+        this(HibernateSessionFactory.getConnectionPoolSize());
+    }
+
+    public DatabaseExecutor(int maxConcurrentTasks) {
+        if (maxConcurrentTasks <= 0) {
+            throw new IllegalArgumentException("Number of concurrent database tasks must be positive");
+        }
+        this.maxConcurrentTasks = maxConcurrentTasks;
+        this.permits = new Semaphore(maxConcurrentTasks, true);
+    }
+
+    /**
+     * Runs the task on a virtual thread once a permit is available.
+     * Exceptions thrown by the task complete the future exceptionally.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            }
+            try {
+                return task.call();
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    public CompletableFuture<Void> run(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public int maxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    /**
+     * Number of tasks currently holding a permit.
+     */
+    public int activeTasks() {
+        return maxConcurrentTasks - permits.availablePermits();
+    }
+
+    /**
+     * Stops accepting tasks and waits for the submitted ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
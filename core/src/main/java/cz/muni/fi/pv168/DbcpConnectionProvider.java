@@ -0,0 +1,223 @@
+package cz.muni.fi.pv168;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.BasicDataSourceFactory;
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+/**
+ * Hibernate ConnectionProvider backed by a Commons DBCP 2 pool.
+ * Every hibernate.dbcp.* setting is passed to the pool without the prefix, e.g. hibernate.dbcp.maxTotal or
+ * hibernate.dbcp.removeAbandonedOnMaintenance. The connection URL and credentials are resolved by
+ * {@link JdbcConnectionSettings}.
+ *
+ * With hibernate.dbcp.leakDetectionThreshold set to a number of milliseconds, connections held longer
+ * than that are logged together with the stack trace of the code that borrowed them.
+ * With hibernate.slow_query_log.threshold_ms set, the statements run on the connections are timed by a {@link SlowQueryLog}.
+ */
+public class DbcpConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    public static final String DBCP_PREFIX = "hibernate.dbcp.";
+    public static final String LEAK_DETECTION_THRESHOLD = DBCP_PREFIX + "leakDetectionThreshold";
+
+    private BasicDataSource dataSource;
+    private ScheduledExecutorService leakDetector;
+    private long leakDetectionThresholdNanos;
+    private SlowQueryLog slowQueryLog;
+    private final Map<Connection, Borrow> borrowed = new ConcurrentHashMap<>();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    @Override
+    public void configure(Map<String, Object> settings) {
+        Properties properties = new Properties();
+        putIfPresent(properties, "driverClassName", JdbcConnectionSettings.driver(settings));
+        putIfPresent(properties, "url", JdbcConnectionSettings.url(settings));
+        putIfPresent(properties, "username", JdbcConnectionSettings.user(settings));
+        putIfPresent(properties, "password", JdbcConnectionSettings.password(settings));
+        putIfPresent(properties, "defaultAutoCommit", settings.getOrDefault(AvailableSettings.AUTOCOMMIT, "false"));
+        // Read-only calls mark their connection read-only, the pool resets it when the connection is borrowed again
+        putIfPresent(properties, "defaultReadOnly", "false");
+        for (Map.Entry<String, Object> setting : settings.entrySet()) {
+            if (setting.getKey().startsWith(DBCP_PREFIX)) {
+                putIfPresent(properties, setting.getKey().substring(DBCP_PREFIX.length()), setting.getValue());
+            }
+        }
+
+        try {
+            dataSource = (BasicDataSource) BasicDataSourceFactory.createDataSource(properties);
+        } catch (Exception ex) {
+            throw new HibernateException("Could not create DBCP connection pool", ex);
+        }
+
+        Object slowQueryThreshold = settings.get(SlowQueryLog.THRESHOLD);
+        if (slowQueryThreshold != null) {
+            slowQueryLog = new SlowQueryLog(Long.parseLong(slowQueryThreshold.toString().trim()));
+        }
+
+        Object threshold = settings.get(LEAK_DETECTION_THRESHOLD);
+        if (threshold != null && Long.parseLong(threshold.toString().trim()) > 0) {
+            long thresholdMillis = Long.parseLong(threshold.toString().trim());
+            leakDetectionThresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+            leakDetector = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("db-leak-detector").daemon().factory());
+            long period = Math.max(1, thresholdMillis / 2);
+            leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+        }
+        logger.log(Level.INFO, "DBCP connection pool configured with maxTotal " + dataSource.getMaxTotal());
+    }
+
+    private static void putIfPresent(Properties properties, String key, Object value) {
+        if (value != null) {
+            properties.setProperty(key, value.toString().trim());
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = dataSource.getConnection();
+        } catch (SQLException ex) {
+            if (ex.getCause() instanceof NoSuchElementException) {
+                timeouts.increment();
+                logger.log(Level.WARNING, "Timed out waiting for a pooled connection, "
+                        + dataSource.getNumActive() + " of " + dataSource.getMaxTotal() + " in use");
+            }
+            throw ex;
+        }
+        long waited = System.nanoTime() - start;
+        acquisitions.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (Tracing.isRecording()) {
+            Tracing.record("connection.acquire", start, start + waited, Map.of("db.pool.active", dataSource.getNumActive()));
+        }
+        if (slowQueryLog != null) {
+            connection = slowQueryLog.wrap(connection);
+        }
+        if (leakDetector != null) {
+            borrowed.put(connection, new Borrow(System.nanoTime(), new Exception("Connection borrowed here")));
+        }
+        return connection;
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        borrowed.remove(connection);
+        connection.close();
+    }
+
+    private void detectLeaks() {
+        long now = System.nanoTime();
+        for (Map.Entry<Connection, Borrow> entry : borrowed.entrySet()) {
+            Borrow borrow = entry.getValue();
+            if (!borrow.reported && now - borrow.since > leakDetectionThresholdNanos) {
+                borrow.reported = true;
+                leaks.increment();
+                logger.log(Level.WARNING, "Possible connection leak, connection held for "
+                        + TimeUnit.NANOSECONDS.toMillis(now - borrow.since) + " ms", borrow.origin);
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of the pool usage and of the counters collected since the pool was configured.
+     *
+     * @return current connection pool statistics
+     */
+    public ConnectionPoolStatistics getStatistics() {
+        return new ConnectionPoolStatistics(
+                dataSource.getNumActive(),
+                dataSource.getNumIdle(),
+                dataSource.getMaxTotal(),
+                acquisitions.sum(),
+                totalWaitNanos.sum(),
+                maxWaitNanos.get(),
+                timeouts.sum(),
+                leaks.sum());
+    }
+
+    /**
+     * Get the log timing the statements run on the pooled connections.
+     *
+     * @return the slow query log, or null when hibernate.slow_query_log.threshold_ms is not set
+     */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    public int getMaxTotal() {
+        return dataSource.getMaxTotal();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isAssignableFrom(getClass()) || unwrapType.isAssignableFrom(BasicDataSource.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isAssignableFrom(getClass())) {
+            return (T) this;
+        }
+        if (unwrapType.isAssignableFrom(BasicDataSource.class)) {
+            return (T) dataSource;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    @Override
+    public void stop() {
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+        borrowed.clear();
+        try {
+            dataSource.close();
+        } catch (SQLException ex) {
+            logger.log(Level.WARNING, "Error when closing DBCP connection pool", ex);
+        }
+    }
+
+    private static final class Borrow {
+        private final long since;
+        private final Exception origin;
+        private volatile boolean reported;
+
+        private Borrow(long since, Exception origin) {
+            this.since = since;
+            this.origin = origin;
+        }
+    }
+
+    public static final Logger logger = Logger.getLogger(DbcpConnectionProvider.class.getName());
+}
@@ -0,0 +1,68 @@
+package cz.muni.fi.pv168;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.SessionEventListener;
+
+/**
+ * Emits the Session Opened and Session Closed Flight Recorder events. Hibernate creates one listener
+ * per session when the class is set as hibernate.session.events.auto, so the listener is created
+ * when its session opens and {@link #end()} is called when the session closes.
+ */
+public class FlightRecorderSessionListener implements SessionEventListener {
+
+    private static final AtomicLong SESSIONS = new AtomicLong();
+
+    private final transient SessionClosedEvent closed = new SessionClosedEvent();
+
+    public FlightRecorderSessionListener() {
+        long sessionId = SESSIONS.incrementAndGet();
+        SessionOpenedEvent opened = new SessionOpenedEvent();
+        if (opened.isEnabled()) {
+            opened.sessionId = sessionId;
+            opened.commit();
+        }
+        closed.sessionId = sessionId;
+        closed.begin();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        closed.connectionAcquisitions++;
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        closed.statements++;
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        closed.statements++;
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        closed.flushes++;
+        closed.entitiesFlushed += numberOfEntities;
+    }
+
+    @Override
+    public void partialFlushEnd(int numberOfEntities, int numberOfCollections) {
+        closed.flushes++;
+        closed.entitiesFlushed += numberOfEntities;
+    }
+
+    @Override
+    public void transactionCompletion(boolean successful) {
+        if (successful) {
+            closed.commits++;
+        } else {
+            closed.rollbacks++;
+        }
+    }
+
+    @Override
+    public void end() {
+        closed.commit();
+    }
+}
@@ -0,0 +1,77 @@
+package cz.muni.fi.pv168;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Java Flight Recorder settings for the rental events: Rent Booked, Car Returned and Overlap Check from
+ * {@link RentManagerImplementation}, Session Opened and Session Closed from {@link FlightRecorderSessionListener}.
+ * The bundled carrental.jfc enables them together with GC, lock, socket and CPU events.
+ * Without a running recording the events cost a check of a flag.
+ *
+ * <pre>
+ * try (Recording recording = FlightRecording.start()) {
+ *     ...
+ *     recording.dump(Path.of("carrental.jfr"));
+ * }
+ * </pre>
+ */
+public final class FlightRecording {
+
+    /** Classpath location of the bundled settings. */
+    public static final String SETTINGS = "/cz/muni/fi/pv168/carrental.jfc";
+
+    /** Recordings started by {@link #start()} keep the events of this period. */
+    static final Duration MAX_AGE = Duration.ofHours(6);
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Get the bundled settings.
+     *
+     * @return the carrental.jfc configuration
+     * @throws IllegalStateException when the settings can't be read
+     */
+    public static Configuration settings() {
+        try (InputStream in = FlightRecording.class.getResourceAsStream(SETTINGS)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing flight recorder settings " + SETTINGS);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return Configuration.create(reader);
+            }
+        } catch (IOException | ParseException ex) {
+            logger.log(Level.SEVERE, "Error when reading flight recorder settings " + SETTINGS, ex);
+            throw new IllegalStateException("Error when reading flight recorder settings " + SETTINGS, ex);
+        }
+    }
+
+    /**
+     * Starts a continuous recording with the bundled settings. The recording is kept on disk for
+     * {@link #MAX_AGE} and dumped to the working directory when the JVM exits.
+     *
+     * @return the running recording, close it to stop and discard it
+     */
+    public static Recording start() {
+        Recording recording = new Recording(settings());
+        recording.setName("carrental");
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_AGE);
+        recording.setDumpOnExit(true);
+        recording.start();
+        logger.log(Level.INFO, "Flight recording " + recording.getId() + " started");
+        return recording;
+    }
+
+    public static final Logger logger = Logger.getLogger(FlightRecording.class.getName());
+}
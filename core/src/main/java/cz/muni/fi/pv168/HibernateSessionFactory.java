@@ -1,14 +1,26 @@
 package cz.muni.fi.pv168;
 
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
 
 /**
  * Singleton factory for managing Hibernate SessionFactory.
  * Provides thread-safe access to sessions for database operations.
  */
 public class HibernateSessionFactory {
+    private static final int DEFAULT_JDBC_BATCH_SIZE = 50;
+    private static final int DEFAULT_JDBC_FETCH_SIZE = 500;
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 20;
+
     private static volatile SessionFactory sessionFactory;
+    private static volatile RentIntervalIndex rentIntervalIndex;
 
     /**
      * Get or create the SessionFactory instance.
@@ -21,9 +33,17 @@ public class HibernateSessionFactory {
             synchronized (HibernateSessionFactory.class) {
                 if (sessionFactory == null) {
                     try {
+                        long start = System.nanoTime();
                         Configuration configuration = new Configuration();
                         configuration.configure("hibernate.cfg.xml");
+                        TuningProfiles.apply(configuration);
+                        // Pending migrations are applied before Hibernate validates the schema
+                        SchemaMigrations.migrate(configuration.getProperties());
+                        String ttl = configuration.getProperty(RentIntervalIndex.TTL);
+                        rentIntervalIndex = new RentIntervalIndex(RentManagerImplementation::loadCarRents,
+                                ttl == null ? RentIntervalIndex.DEFAULT_TTL_MILLIS : Long.parseLong(ttl.trim()));
                         sessionFactory = configuration.buildSessionFactory();
+                        logger.log(Level.INFO, "SessionFactory built in " + (System.nanoTime() - start) / 1_000_000 + " ms");
                     } catch (Throwable ex) {
                         throw new ExceptionInInitializerError(ex);
                     }
@@ -33,6 +53,128 @@ public class HibernateSessionFactory {
         return sessionFactory;
     }
 
+    /**
+     * Check whether the SessionFactory has been built, without building it.
+     *
+     * @return true when getSessionFactory() was called and shutdown() was not called since
+     */
+    public static boolean isInitialized() {
+        return sessionFactory != null;
+    }
+
+    /**
+     * Get the index of booked periods shared by all rent managers of the SessionFactory.
+     * It is replaced together with the SessionFactory, so no periods outlive a reinitialization.
+     *
+     * @return the rent interval index of the current SessionFactory
+     */
+    public static RentIntervalIndex getRentIntervalIndex() {
+        getSessionFactory();
+        return rentIntervalIndex;
+    }
+
+    /**
+     * Get the name of the tuning profile the SessionFactory was built with.
+     *
+     * @return the applied tuning profile, see {@link TuningProfiles}
+     */
+    public static String getTuningProfile() {
+        Object profile = getSessionFactory().getProperties().get(TuningProfiles.PROFILE);
+        return profile == null ? TuningProfiles.DEFAULT_PROFILE : profile.toString();
+    }
+
+    /**
+     * Get the JDBC batch size configured by hibernate.jdbc.batch_size.
+     * Batch operations flush and clear the session after this many entities.
+     *
+     * @return the configured JDBC batch size
+     */
+    public static int getJdbcBatchSize() {
+        return getIntSetting(AvailableSettings.STATEMENT_BATCH_SIZE, DEFAULT_JDBC_BATCH_SIZE);
+    }
+
+    /**
+     * Get the JDBC fetch size configured by hibernate.jdbc.fetch_size.
+     * Streaming reads pull this many rows from the database cursor per round trip.
+     *
+     * @return the configured JDBC fetch size
+     */
+    public static int getJdbcFetchSize() {
+        return getIntSetting(AvailableSettings.STATEMENT_FETCH_SIZE, DEFAULT_JDBC_FETCH_SIZE);
+    }
+
+    /**
+     * Get the maximum number of pooled JDBC connections, hibernate.dbcp.maxTotal when the DBCP pool
+     * is used, otherwise hibernate.connection.pool_size.
+     * Asynchronous callers bound their concurrent database work by this number.
+     *
+     * @return the configured connection pool size
+     */
+    public static int getConnectionPoolSize() {
+        DbcpConnectionProvider pool = getConnectionPool();
+        if (pool != null) {
+            return pool.getMaxTotal();
+        }
+        return getIntSetting(AvailableSettings.POOL_SIZE, DEFAULT_CONNECTION_POOL_SIZE);
+    }
+
+    /**
+     * Get a snapshot of the connection pool usage, wait times, timeouts and detected leaks.
+     *
+     * @return connection pool statistics, or null when Hibernate is not configured with the DBCP pool
+     */
+    public static ConnectionPoolStatistics getConnectionPoolStatistics() {
+        DbcpConnectionProvider pool = getConnectionPool();
+        return pool == null ? null : pool.getStatistics();
+    }
+
+    /**
+     * Get the per-fingerprint execution counts, latency percentiles and rows of the SQL statements run
+     * since the SessionFactory was built, the statements that took the most time in total first.
+     *
+     * @return query statistics, empty when the slow query log is not enabled
+     */
+    public static List<QueryStatistics> getQueryStatistics() {
+        DbcpConnectionProvider pool = getConnectionPool();
+        if (pool == null || pool.getSlowQueryLog() == null) {
+            return List.of();
+        }
+        return pool.getSlowQueryLog().getStatistics();
+    }
+
+    private static DbcpConnectionProvider getConnectionPool() {
+        ConnectionProvider provider = getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        if (provider != null && provider.isUnwrappableAs(DbcpConnectionProvider.class)) {
+            return provider.unwrap(DbcpConnectionProvider.class);
+        }
+        return null;
+    }
+
+    /**
+     * Get a snapshot of the second-level, query and query plan cache hit/miss counters.
+     *
+     * @return cache statistics collected since the SessionFactory was built
+     */
+    public static CacheStatistics getCacheStatistics() {
+        Statistics statistics = getSessionFactory().getStatistics();
+        return new CacheStatistics(
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(),
+                statistics.getQueryPlanCacheHitCount(),
+                statistics.getQueryPlanCacheMissCount());
+    }
+
+    private static int getIntSetting(String name, int defaultValue) {
+        Object value = getSessionFactory().getProperties().get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.toString().trim());
+    }
+
     /**
      * Shutdown the SessionFactory and release all resources.
      * Should be called when the application is shutting down.
@@ -46,6 +188,7 @@ public class HibernateSessionFactory {
                 ex.printStackTrace();
             } finally {
                 sessionFactory = null;
+                rentIntervalIndex = null;
             }
         }
     }
@@ -57,4 +200,6 @@ public class HibernateSessionFactory {
         shutdown();
         sessionFactory = null;
     }
+
+    public static final Logger logger = Logger.getLogger(HibernateSessionFactory.class.getName());
 }
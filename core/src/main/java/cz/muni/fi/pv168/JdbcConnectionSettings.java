@@ -0,0 +1,44 @@
+package cz.muni.fi.pv168;
+
+import java.util.Map;
+import org.hibernate.cfg.JdbcSettings;
+
+/**
+ * Resolves the JDBC connection settings from the Hibernate configuration, so that the connection pool and
+ * the schema migrations connect to the same database. The jakarta.persistence.jdbc.* keys take precedence,
+ * the legacy hibernate.connection.* keys used by hibernate.cfg.xml are the fallback.
+ */
+final class JdbcConnectionSettings {
+
+    static final String LEGACY_DRIVER = "hibernate.connection.driver_class";
+    static final String LEGACY_URL = "hibernate.connection.url";
+    static final String LEGACY_USER = "hibernate.connection.username";
+    static final String LEGACY_PASSWORD = "hibernate.connection.password";
+
+    private JdbcConnectionSettings() {
+    }
+
+    static String driver(Map<?, ?> settings) {
+        return resolve(settings, JdbcSettings.JAKARTA_JDBC_DRIVER, LEGACY_DRIVER);
+    }
+
+    static String url(Map<?, ?> settings) {
+        return resolve(settings, JdbcSettings.JAKARTA_JDBC_URL, LEGACY_URL);
+    }
+
+    static String user(Map<?, ?> settings) {
+        return resolve(settings, JdbcSettings.JAKARTA_JDBC_USER, LEGACY_USER);
+    }
+
+    static String password(Map<?, ?> settings) {
+        return resolve(settings, JdbcSettings.JAKARTA_JDBC_PASSWORD, LEGACY_PASSWORD);
+    }
+
+    private static String resolve(Map<?, ?> settings, String key, String legacyKey) {
+        Object value = settings.get(key);
+        if (value == null) {
+            value = settings.get(legacyKey);
+        }
+        return value == null ? null : value.toString().trim();
+    }
+}
@@ -0,0 +1,131 @@
+package cz.muni.fi.pv168;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends every span as one JSON object per line to a local file:
+ *
+ * <pre>
+ * {"traceId":"…","spanId":"…","parentSpanId":"…","name":"RentManager.addRent","start":"2026-01-01T10:00:00.123456Z",
+ *  "durationMicros":5321,"thread":"main","attributes":{"db.rows":1},"error":null}
+ * </pre>
+ *
+ * The file is flushed whenever a root span ends, so complete traces are visible while the application runs.
+ */
+public final class JsonLinesSpanExporter implements SpanExporter, AutoCloseable {
+
+    private final Path file;
+    private final BufferedWriter writer;
+
+    /**
+     * @param file file to append to, created if it does not exist
+     * @throws IOException when the file can't be opened
+     */
+    public JsonLinesSpanExporter(Path file) throws IOException {
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public synchronized void export(Span span) {
+        try {
+            writer.write(toJson(span));
+            writer.newLine();
+            if (span.parentSpanId() == null) {
+                writer.flush();
+            }
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Error when writing span to " + file, ex);
+            throw new UncheckedIOException("Error when writing span to " + file, ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    static String toJson(Span span) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"traceId\":");
+        string(json, span.traceId());
+        json.append(",\"spanId\":");
+        string(json, span.spanId());
+        json.append(",\"parentSpanId\":");
+        string(json, span.parentSpanId());
+        json.append(",\"name\":");
+        string(json, span.name());
+        json.append(",\"start\":");
+        string(json, span.start().toString());
+        json.append(",\"durationMicros\":").append(span.durationNanos() / 1_000);
+        json.append(",\"thread\":");
+        string(json, span.thread());
+        json.append(",\"attributes\":{");
+        boolean first = true;
+        for (Map.Entry<String, Object> attribute : span.attributes().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            string(json, attribute.getKey());
+            json.append(':');
+            Object value = attribute.getValue();
+            if (value instanceof Number || value instanceof Boolean) {
+                json.append(value);
+            } else {
+                string(json, value == null ? null : value.toString());
+            }
+        }
+        json.append("},\"error\":");
+        string(json, span.error());
+        return json.append('}').toString();
+    }
+
+    private static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                    break;
+            }
+        }
+        json.append('"');
+    }
+
+    public static final Logger logger = Logger.getLogger(JsonLinesSpanExporter.class.getName());
+}
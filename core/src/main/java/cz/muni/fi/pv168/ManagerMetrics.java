@@ -0,0 +1,299 @@
+package cz.muni.fi.pv168;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Latency histograms, call and error counts of the manager operations, together with the Hibernate
+ * statistics and the connection pool counters. Managers are measured by wrapping them:
+ *
+ * <pre>
+ * CarManager carManager = ManagerMetrics.instrument(CarManager.class, new CarManagerImplementation());
+ * </pre>
+ *
+ * The metrics are published over JMX as {@link #OBJECT_NAME} and in the Prometheus text format by
+ * {@link MetricsHttpServer}. Methods returning a Stream are measured until the stream is returned,
+ * not until it is consumed.
+ */
+public final class ManagerMetrics implements ManagerMetricsMXBean {
+
+    public static final String OBJECT_NAME = "cz.muni.fi.pv168:type=ManagerMetrics";
+
+    /** Upper bounds of the latency histogram buckets in seconds, from 1 ms to 10 s. */
+    static final double[] BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0};
+
+    private static final ManagerMetrics INSTANCE = register(new ManagerMetrics());
+
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentSkipListMap<>();
+
+    ManagerMetrics() {
+    }
+
+    /**
+     * Get the registry used by {@link #instrument(Class, Object)}, the JMX bean and the /metrics endpoint.
+     */
+    public static ManagerMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Wraps a manager so that every call of the manager interface is recorded in the application registry.
+     *
+     * @param type manager interface, e.g. CarManager.class
+     * @param manager the manager to measure
+     * @return manager recording its calls, to be used in place of the given one
+     */
+    public static <T> T instrument(Class<T> type, T manager) {
+        return INSTANCE.wrap(type, manager);
+    }
+
+    <T> T wrap(Class<T> type, T manager) {
+        if (null == manager) {
+            throw new IllegalArgumentException("Can't instrument null manager");
+        }
+        String prefix = type.getSimpleName() + ".";
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> invoke(prefix, manager, proxy, method, args)));
+    }
+
+    private Object invoke(String prefix, Object manager, Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return method.invoke(manager, args);
+            }
+        }
+        Operation operation = operations.computeIfAbsent(prefix + method.getName(), name -> new Operation());
+        long start = System.nanoTime();
+        try {
+            Object result = method.invoke(manager, args);
+            operation.record(System.nanoTime() - start, null);
+            return result;
+        } catch (InvocationTargetException ex) {
+            operation.record(System.nanoTime() - start, ex.getCause());
+            throw ex.getCause();
+        }
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        return collect(operation -> operation.calls.sum());
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        return collect(operation -> operation.errors.values().stream().mapToLong(LongAdder::sum).sum());
+    }
+
+    @Override
+    public Map<String, Double> getMeanLatencyMillis() {
+        return collect(operation -> {
+            long calls = operation.calls.sum();
+            return calls == 0 ? 0.0 : (double) operation.totalNanos.sum() / calls / TimeUnit.MILLISECONDS.toNanos(1);
+        });
+    }
+
+    @Override
+    public Map<String, Double> getMaxLatencyMillis() {
+        return collect(operation -> (double) operation.maxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Override
+    public Map<String, Long> getDatabaseCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        if (!HibernateSessionFactory.isInitialized()) {
+            return counters;
+        }
+        Statistics statistics = HibernateSessionFactory.getSessionFactory().getStatistics();
+        counters.put("sessionsOpened", statistics.getSessionOpenCount());
+        counters.put("transactions", statistics.getTransactionCount());
+        counters.put("statementsPrepared", statistics.getPrepareStatementCount());
+        counters.put("queryExecutions", statistics.getQueryExecutionCount());
+        counters.put("queryExecutionMaxMillis", statistics.getQueryExecutionMaxTime());
+        counters.put("entityLoads", statistics.getEntityLoadCount());
+        counters.put("entityInserts", statistics.getEntityInsertCount());
+        counters.put("entityUpdates", statistics.getEntityUpdateCount());
+        counters.put("entityDeletes", statistics.getEntityDeleteCount());
+        counters.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        counters.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        counters.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        counters.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        counters.put("queryPlanCacheHits", statistics.getQueryPlanCacheHitCount());
+        counters.put("queryPlanCacheMisses", statistics.getQueryPlanCacheMissCount());
+        ConnectionPoolStatistics pool = HibernateSessionFactory.getConnectionPoolStatistics();
+        if (pool != null) {
+            counters.put("poolActive", (long) pool.active());
+            counters.put("poolIdle", (long) pool.idle());
+            counters.put("poolMaxTotal", (long) pool.maxTotal());
+            counters.put("poolAcquisitions", pool.acquisitions());
+            counters.put("poolWaitNanos", pool.totalWaitNanos());
+            counters.put("poolTimeouts", pool.timeouts());
+            counters.put("poolLeaks", pool.leaks());
+        }
+        return counters;
+    }
+
+    @Override
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        header(out, "carrental_manager_operation_duration_seconds", "histogram",
+                "Latency of manager operations, errors included");
+        operations.forEach((name, operation) -> {
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                cumulative += operation.buckets[i].sum();
+                sample(out, "carrental_manager_operation_duration_seconds_bucket",
+                        "operation=\"" + name + "\",le=\"" + BUCKETS[i] + "\"", cumulative);
+            }
+            long calls = operation.calls.sum();
+            sample(out, "carrental_manager_operation_duration_seconds_bucket", "operation=\"" + name + "\",le=\"+Inf\"", calls);
+            sample(out, "carrental_manager_operation_duration_seconds_sum", "operation=\"" + name + "\"",
+                    operation.totalNanos.sum() / 1e9);
+            sample(out, "carrental_manager_operation_duration_seconds_count", "operation=\"" + name + "\"", calls);
+        });
+        header(out, "carrental_manager_operation_errors_total", "counter",
+                "Manager operations that threw an exception, by exception type");
+        operations.forEach((name, operation) -> operation.errors.forEach((type, count) ->
+                sample(out, "carrental_manager_operation_errors_total",
+                        "operation=\"" + name + "\",exception=\"" + type + "\"", count.sum())));
+
+        Map<String, Long> counters = getDatabaseCounters();
+        if (!counters.isEmpty()) {
+            counter(out, "hibernate_sessions_opened_total", "Sessions opened", counters.get("sessionsOpened"));
+            counter(out, "hibernate_transactions_total", "Transactions completed", counters.get("transactions"));
+            counter(out, "hibernate_statements_prepared_total", "JDBC statements prepared", counters.get("statementsPrepared"));
+            counter(out, "hibernate_query_executions_total", "HQL and native queries executed", counters.get("queryExecutions"));
+            header(out, "hibernate_query_execution_max_seconds", "gauge", "Slowest query execution");
+            sample(out, "hibernate_query_execution_max_seconds", null, counters.get("queryExecutionMaxMillis") / 1e3);
+            header(out, "hibernate_entity_operations_total", "counter", "Entity loads, inserts, updates and deletes");
+            sample(out, "hibernate_entity_operations_total", "kind=\"load\"", counters.get("entityLoads"));
+            sample(out, "hibernate_entity_operations_total", "kind=\"insert\"", counters.get("entityInserts"));
+            sample(out, "hibernate_entity_operations_total", "kind=\"update\"", counters.get("entityUpdates"));
+            sample(out, "hibernate_entity_operations_total", "kind=\"delete\"", counters.get("entityDeletes"));
+            cache(out, "hibernate_second_level_cache_requests_total", "Second-level cache lookups",
+                    counters.get("secondLevelCacheHits"), counters.get("secondLevelCacheMisses"));
+            cache(out, "hibernate_query_cache_requests_total", "Query cache lookups",
+                    counters.get("queryCacheHits"), counters.get("queryCacheMisses"));
+            cache(out, "hibernate_query_plan_cache_requests_total", "Query plan cache lookups",
+                    counters.get("queryPlanCacheHits"), counters.get("queryPlanCacheMisses"));
+        }
+        if (counters.containsKey("poolActive")) {
+            header(out, "carrental_connection_pool_connections", "gauge", "Pooled JDBC connections by state");
+            sample(out, "carrental_connection_pool_connections", "state=\"active\"", counters.get("poolActive"));
+            sample(out, "carrental_connection_pool_connections", "state=\"idle\"", counters.get("poolIdle"));
+            sample(out, "carrental_connection_pool_connections", "state=\"max\"", counters.get("poolMaxTotal"));
+            counter(out, "carrental_connection_pool_acquisitions_total", "Connections borrowed from the pool",
+                    counters.get("poolAcquisitions"));
+            header(out, "carrental_connection_pool_wait_seconds_total", "counter", "Time spent waiting for a connection");
+            sample(out, "carrental_connection_pool_wait_seconds_total", null, counters.get("poolWaitNanos") / 1e9);
+            counter(out, "carrental_connection_pool_timeouts_total", "Borrow attempts that timed out", counters.get("poolTimeouts"));
+            counter(out, "carrental_connection_pool_leaks_total", "Connections held past the leak detection threshold",
+                    counters.get("poolLeaks"));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        operations.clear();
+    }
+
+    private <V> Map<String, V> collect(Function<Operation, V> value) {
+        Map<String, V> result = new LinkedHashMap<>();
+        operations.forEach((name, operation) -> result.put(name, value.apply(operation)));
+        return result;
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        sample(out, name, null, value);
+    }
+
+    private static void cache(StringBuilder out, String name, String help, long hits, long misses) {
+        header(out, name, "counter", help);
+        sample(out, name, "result=\"hit\"", hits);
+        sample(out, name, "result=\"miss\"", misses);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Number value) {
+        out.append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static ManagerMetrics register(ManagerMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException ex) {
+            // Runs during class initialization, before the logger field below is set
+            Logger.getLogger(ManagerMetrics.class.getName()).log(Level.WARNING, "Manager metrics are not published over JMX", ex);
+        }
+        return metrics;
+    }
+
+    /**
+     * Counters of one manager operation. The histogram buckets are not cumulative, the export sums them.
+     */
+    private static final class Operation {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length];
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+
+        private Operation() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos, Throwable error) {
+            calls.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            double seconds = nanos / 1e9;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                if (seconds <= BUCKETS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            if (error != null) {
+                errors.computeIfAbsent(error.getClass().getSimpleName(), type -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    public static final Logger logger = Logger.getLogger(ManagerMetrics.class.getName());
+}
@@ -0,0 +1,31 @@
+package cz.muni.fi.pv168;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ManagerMetrics}, registered as cz.muni.fi.pv168:type=ManagerMetrics.
+ * Operations are named after the manager interface and method, e.g. RentManager.addRent.
+ */
+public interface ManagerMetricsMXBean {
+
+    public Map<String, Long> getCallCounts();
+
+    public Map<String, Long> getErrorCounts();
+
+    public Map<String, Double> getMeanLatencyMillis();
+
+    public Map<String, Double> getMaxLatencyMillis();
+
+    /**
+     * Get the Hibernate statistics counters and the connection pool counters, empty before the
+     * SessionFactory is built.
+     */
+    public Map<String, Long> getDatabaseCounters();
+
+    /**
+     * Get all metrics in the Prometheus text exposition format, as served on /metrics.
+     */
+    public String scrape();
+
+    public void reset();
+}
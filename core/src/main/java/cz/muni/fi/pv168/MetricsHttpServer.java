@@ -0,0 +1,110 @@
+package cz.muni.fi.pv168;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP endpoint serving {@link ManagerMetrics} in the Prometheus text format on /metrics.
+ * Requests are handled one at a time on the server's own thread, a scrape only reads counters.
+ * The endpoint has no authentication, so it listens on the loopback address unless
+ * carrental.metrics.bind_address names another address, e.g. 0.0.0.0 for a scraper on another host.
+ *
+ * <pre>
+ * try (MetricsHttpServer server = MetricsHttpServer.start(9464)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class MetricsHttpServer implements AutoCloseable {
+
+    /** System property with the port to serve metrics on, the applications start no server without it. */
+    public static final String PORT = "carrental.metrics.port";
+    /** System property with the address to listen on, the loopback address without it. */
+    public static final String BIND_ADDRESS = "carrental.metrics.bind_address";
+    public static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    private MetricsHttpServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Starts serving the application metrics on the address given by carrental.metrics.bind_address.
+     *
+     * @param port TCP port to listen on, 0 picks a free port
+     * @return the running server
+     * @throws IOException when the address can't be resolved or the port can't be bound
+     */
+    public static MetricsHttpServer start(int port) throws IOException {
+        return start(bindAddress(), port, ManagerMetrics.getInstance());
+    }
+
+    static MetricsHttpServer start(InetAddress address, int port, ManagerMetricsMXBean metrics) throws IOException {
+        if (port < 0) {
+            throw new IllegalArgumentException("Port can't be negative");
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.createContext(PATH, exchange -> handle(exchange, metrics));
+        server.start();
+        logger.log(Level.INFO, "Serving metrics on http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + PATH);
+        return new MetricsHttpServer(server);
+    }
+
+    static InetAddress bindAddress() throws IOException {
+        String address = System.getProperty(BIND_ADDRESS);
+        if (address == null || address.isBlank()) {
+            return InetAddress.getLoopbackAddress();
+        }
+        logger.log(Level.WARNING, "Metrics are served without authentication on " + address.trim());
+        return InetAddress.getByName(address.trim());
+    }
+
+    private static void handle(HttpExchange exchange, ManagerMetricsMXBean metrics) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (RuntimeException ex) {
+            logger.log(Level.SEVERE, "Error when serving metrics", ex);
+            throw ex;
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    public static final Logger logger = Logger.getLogger(MetricsHttpServer.class.getName());
+}
@@ -0,0 +1,30 @@
+package cz.muni.fi.pv168;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a lookup in the rent interval index, see {@link RentIntervalIndex}.
+ * The duration includes loading the rents of the car when they are not indexed yet.
+ */
+@Name("cz.muni.fi.pv168.OverlapCheck")
+@Label("Overlap Check")
+@Category({"Car Rental", "Rentals"})
+@Description("Check whether a car is already rented in a period")
+final class OverlapCheckEvent extends jdk.jfr.Event {
+
+    @Label("Car")
+    String carId;
+
+    @Label("Rent Date")
+    String rentDate;
+
+    @Label("Due Date")
+    String dueDate;
+
+    @Label("Overlapping")
+    @Description("The car is rented in the period")
+    boolean overlapping;
+}
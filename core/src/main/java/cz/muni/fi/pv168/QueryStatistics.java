@@ -0,0 +1,23 @@
+package cz.muni.fi.pv168;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregated executions of one SQL fingerprint, see {@link SlowQueryLog}. Rows are the rows read from
+ * result sets plus the rows changed by updates. The percentiles cover the latest executions.
+ */
+public record QueryStatistics(String fingerprint, long count, long rows, long totalNanos,
+                              long p50Nanos, long p99Nanos, long maxNanos) {
+
+    public double totalMillis() {
+        return (double) totalNanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double p50Millis() {
+        return (double) p50Nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double p99Millis() {
+        return (double) p99Nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,27 @@
+package cz.muni.fi.pv168;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Publisher} variant of the {@link CarManager} reads for reporting and sync jobs.
+ * Cars are emitted as they arrive from the database cursor and only as fast as the subscriber requests them.
+ */
+public class ReactiveCarManager {
+
+    private final CarManager carManager;
+    private final Executor executor;
+
+    public ReactiveCarManager(CarManager carManager) {
+        this(carManager, CursorPublisher.VIRTUAL_THREADS);
+    }
+
+    public ReactiveCarManager(CarManager carManager, Executor executor) {
+        this.carManager = carManager;
+        this.executor = executor;
+    }
+
+    public Flow.Publisher<Car> getAllCars() {
+        return new CursorPublisher<>(carManager::streamAllCars, executor);
+    }
+}
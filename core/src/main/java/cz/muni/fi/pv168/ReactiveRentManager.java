@@ -0,0 +1,32 @@
+package cz.muni.fi.pv168;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * {@link Flow.Publisher} variant of the {@link RentManager} reads for reporting and sync jobs.
+ * Rents are emitted as they arrive from the database cursor and only as fast as the subscriber requests them.
+ * Invalid arguments are signalled through {@link Flow.Subscriber#onError(Throwable)} on the first request.
+ */
+public class ReactiveRentManager {
+
+    private final RentManager rentManager;
+    private final Executor executor;
+
+    public ReactiveRentManager(RentManager rentManager) {
+        this(rentManager, CursorPublisher.VIRTUAL_THREADS);
+    }
+
+    public ReactiveRentManager(RentManager rentManager, Executor executor) {
+        this.rentManager = rentManager;
+        this.executor = executor;
+    }
+
+    public Flow.Publisher<Rent> getAllRents() {
+        return new CursorPublisher<>(rentManager::streamAllRents, executor);
+    }
+
+    public Flow.Publisher<Rent> getCustomerRents(Customer customer) {
+        return new CursorPublisher<>(() -> rentManager.streamCustomerRents(customer), executor);
+    }
+}
@@ -1,55 +1,112 @@
 package cz.muni.fi.pv168;
 
-import java.sql.Date;
+import java.time.LocalDate;
 import jakarta.persistence.*;
+import org.hibernate.annotations.JavaType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
-import java.util.UUID;
 
 @Entity
 @Table(name = "rents")
+@NamedQuery(name = Rent.FIND_CUSTOMERS_OF_CAR,
+        query = "SELECT c FROM Rent r JOIN Customer c ON c.uuid = r.customerID WHERE r.carID = :carId")
+@NamedQuery(name = Rent.FIND_BY_CAR, query = "FROM Rent WHERE carID = :carId")
+@NamedQuery(name = Rent.FIND_ALL, query = "FROM Rent")
+@NamedQuery(name = Rent.FIND_CARS_OF_CUSTOMER,
+        query = "SELECT c FROM Rent r JOIN Car c ON c.uuid = r.carID WHERE r.customerID = :customerId")
+@NamedQuery(name = Rent.FIND_CARS_OF_CUSTOMERS,
+        query = "SELECT r.customerID, c FROM Rent r JOIN Car c ON c.uuid = r.carID"
+                + " WHERE r.customerID IN :customerIds")
+@NamedQuery(name = Rent.FIND_CUSTOMERS_OF_CARS,
+        query = "SELECT r.carID, c FROM Rent r JOIN Customer c ON c.uuid = r.customerID"
+                + " WHERE r.carID IN :carIds")
+@NamedQuery(name = Rent.FIND_BY_CUSTOMER_AND_CAR,
+        query = "FROM Rent WHERE customerID = :customerId AND carID = :carId")
+@NamedQuery(name = Rent.COUNT_BY_CUSTOMER,
+        query = "SELECT count(r) FROM Rent r WHERE r.customerID = :customerId")
+@NamedQuery(name = Rent.FIND_RENTING_CUSTOMERS,
+        query = "SELECT DISTINCT r.customerID FROM Rent r WHERE r.customerID IN :customerIds")
+@NamedQuery(name = Rent.FIND_BY_CUSTOMER, query = "FROM Rent r WHERE r.customerID = :customerId")
+@NamedQuery(name = Rent.FIND_FIRST_PAGE, query = "FROM Rent e ORDER BY e.uuid")
+@NamedQuery(name = Rent.FIND_PAGE_AFTER, query = "FROM Rent e WHERE e.uuid > :lastId ORDER BY e.uuid")
+@NamedQuery(name = Rent.FIND_BY_IDS, query = "FROM Rent r WHERE r.uuid IN :ids")
+@NamedQuery(name = Rent.FIND_KEYS_BY_IDS,
+        query = "SELECT r.uuid, r.carID, r.customerID FROM Rent r WHERE r.uuid IN :ids")
+@NamedQuery(name = Rent.DELETE_BY_IDS, query = "DELETE FROM Rent r WHERE r.uuid IN :ids")
+@NamedQuery(name = Rent.FIND_IN_PERIOD,
+        query = "FROM Rent r WHERE r.carID IN :carIds AND r.dueDate >= :from AND r.rentDate <= :to")
+@NamedQuery(name = Rent.FIND_IN_PERIOD_EXCEPT,
+        query = "FROM Rent r WHERE r.carID IN :carIds"
+                + " AND r.uuid NOT IN :excluded AND r.dueDate >= :from AND r.rentDate <= :to")
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @EqualsAndHashCode
 @Accessors(fluent = true)
 public class Rent {
+    // Names of the queries declared above, Hibernate parses and validates them when the SessionFactory is built
+    public static final String FIND_CUSTOMERS_OF_CAR = "Rent.findCustomersOfCar";
+    public static final String FIND_BY_CAR = "Rent.findByCar";
+    public static final String FIND_ALL = "Rent.findAll";
+    public static final String FIND_CARS_OF_CUSTOMER = "Rent.findCarsOfCustomer";
+    public static final String FIND_CARS_OF_CUSTOMERS = "Rent.findCarsOfCustomers";
+    public static final String FIND_CUSTOMERS_OF_CARS = "Rent.findCustomersOfCars";
+    public static final String FIND_BY_CUSTOMER_AND_CAR = "Rent.findByCustomerAndCar";
+    public static final String COUNT_BY_CUSTOMER = "Rent.countByCustomer";
+    public static final String FIND_RENTING_CUSTOMERS = "Rent.findRentingCustomers";
+    public static final String FIND_BY_CUSTOMER = "Rent.findByCustomer";
+    public static final String FIND_FIRST_PAGE = "Rent.findFirstPage";
+    public static final String FIND_PAGE_AFTER = "Rent.findPageAfter";
+    public static final String FIND_BY_IDS = "Rent.findByIds";
+    public static final String FIND_KEYS_BY_IDS = "Rent.findKeysByIds";
+    public static final String DELETE_BY_IDS = "Rent.deleteByIds";
+    public static final String FIND_IN_PERIOD = "Rent.findInPeriod";
+    public static final String FIND_IN_PERIOD_EXCEPT = "Rent.findInPeriodExcept";
+
     @Id
     @Column(name = "id")
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
     private String uuid;
 
     @Column(name = "rent_date")
-    private Date rentDate;
+    private LocalDate rentDate;
 
     @Column(name = "due_date")
-    private Date dueDate;
+    private LocalDate dueDate;
 
     @Column(name = "car")
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
     private String carID;
 
     @Column(name = "customer")
+    @JavaType(UuidStringJavaType.class)
+    @JdbcTypeCode(SqlTypes.UUID)
     private String customerID;
 
     /**
-     * Factory method for creating new Rent instances with auto-generated UUID.
+     * Factory method for creating new Rent instances with auto-generated time-ordered UUID.
      * Use this when creating rents to be saved to the database.
      */
-    public static Rent create(Date rentDate, Date dueDate, String carID, String customerID) {
-        return new Rent(UUID.randomUUID().toString(), rentDate, dueDate, carID, customerID);
+    public static Rent create(LocalDate rentDate, LocalDate dueDate, String carID, String customerID) {
+        return new Rent(UuidV7.generate().toString(), rentDate, dueDate, carID, customerID);
     }
 
     public Rent withUuid(String uuid) {
         return new Rent(uuid, rentDate, dueDate, carID, customerID);
     }
 
-    public Rent withRentDate(Date newRentDate) {
+    public Rent withRentDate(LocalDate newRentDate) {
         return new Rent(uuid, newRentDate, dueDate, carID, customerID);
     }
 
-    public Rent withDueDate(Date newDueDate) {
+    public Rent withDueDate(LocalDate newDueDate) {
         return new Rent(uuid, rentDate, newDueDate, carID, customerID);
     }
 }
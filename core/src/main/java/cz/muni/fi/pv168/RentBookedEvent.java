@@ -0,0 +1,35 @@
+package cz.muni.fi.pv168;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a successful {@link RentManager#addRent(Rent)}, the duration covers the whole call.
+ */
+@Name("cz.muni.fi.pv168.RentBooked")
+@Label("Rent Booked")
+@Category({"Car Rental", "Rentals"})
+@Description("Rent added, from the period checks to the commit")
+final class RentBookedEvent extends jdk.jfr.Event {
+
+    @Label("Rent")
+    String rentId;
+
+    @Label("Car")
+    String carId;
+
+    @Label("Customer")
+    String customerId;
+
+    @Label("Rent Date")
+    String rentDate;
+
+    @Label("Due Date")
+    String dueDate;
+
+    @Label("In Unit of Work")
+    @Description("The rent is committed later, together with the other calls of the unit of work")
+    boolean inUnitOfWork;
+}
@@ -0,0 +1,282 @@
+package cz.muni.fi.pv168;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory index of booked periods per car.
+ * Every car is loaded lazily from the database on first access and is afterwards kept in sync
+ * by the rent managers after each committed write. One index is shared by all rent managers of a
+ * SessionFactory, see {@link HibernateSessionFactory#getRentIntervalIndex()}. Periods are kept as
+ * sorted epoch-day arrays, so conflict and free-slot lookups are binary searches over primitive arrays.
+ *
+ * The index is only a fast path. Rents written by another process are not seen until the car is
+ * loaded again, so a loaded car answers from memory for at most the TTL set by hibernate.rent_index.ttl_ms
+ * and is reloaded afterwards. A conflict is always confirmed against a fresh load before it is reported,
+ * and the rents_no_overlap constraint of the database remains the final authority when a rent is committed.
+ */
+public class RentIntervalIndex {
+
+    public static final String TTL = "hibernate.rent_index.ttl_ms";
+    public static final long DEFAULT_TTL_MILLIS = 30_000;
+
+    /** Number of version counters the car IDs are spread over. */
+    private static final int STRIPES = 64;
+
+    private final Function<String, List<Rent>> loader;
+    private final long ttlNanos;
+    private final ConcurrentMap<String, Entry> entriesByCar = new ConcurrentHashMap<>();
+    // Bumped before every change of the rents of a car, a load that overlapped a change is not cached
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    /**
+     * @param loader loads all stored rents of the car with the given ID
+     */
+    public RentIntervalIndex(Function<String, List<Rent>> loader) {
+        this(loader, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param loader loads all stored rents of the car with the given ID
+     * @param ttlMillis how long a loaded car is trusted before it is loaded again
+     */
+    public RentIntervalIndex(Function<String, List<Rent>> loader, long ttlMillis) {
+        this.loader = loader;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Checks whether the inclusive period [start, end] overlaps any rent of the car.
+     *
+     * @param excludedRentID rent to ignore, typically the rent being updated, or null
+     */
+    public boolean conflicts(String carID, LocalDate start, LocalDate end, String excludedRentID) {
+        long from = start.toEpochDay();
+        long to = end.toEpochDay();
+        Intervals cached = cached(carID);
+        if (cached != null && !cached.conflicts(from, to, excludedRentID)) {
+            return false;
+        }
+        // Another process may have released the period since the car was loaded
+        return reload(carID).conflicts(from, to, excludedRentID);
+    }
+
+    /**
+     * Finds the first day not before {@code notBefore} from which the car is free for {@code days} days.
+     */
+    public LocalDate earliestFreeWindow(String carID, LocalDate notBefore, int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("Rent period must be at least one day");
+        }
+        return LocalDate.ofEpochDay(intervals(carID).earliestFreeWindow(notBefore.toEpochDay(), days));
+    }
+
+    /**
+     * Records a committed rent. Replaces the previous period of the same rent on that car.
+     */
+    public void booked(Rent rent) {
+        long from = rent.rentDate().toEpochDay();
+        long to = rent.dueDate().toEpochDay();
+        change(rent.carID(), intervals -> intervals.without(rent.uuid()).with(from, to, rent.uuid()));
+    }
+
+    /**
+     * Records that a rent of the car was removed or moved to another car.
+     */
+    public void released(String carID, String rentID) {
+        change(carID, intervals -> intervals.without(rentID));
+    }
+
+    /**
+     * Drops the cached periods of the car, the next lookup loads them again.
+     */
+    public void invalidate(String carID) {
+        versions.incrementAndGet(stripe(carID));
+        entriesByCar.remove(carID);
+    }
+
+    public void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        entriesByCar.clear();
+    }
+
+    private void change(String carID, UnaryOperator<Intervals> change) {
+        versions.incrementAndGet(stripe(carID));
+        entriesByCar.computeIfPresent(carID, (id, entry) -> new Entry(change.apply(entry.intervals()), entry.loadedAt()));
+    }
+
+    private Intervals cached(String carID) {
+        Entry entry = entriesByCar.get(carID);
+        if (entry == null || System.nanoTime() - entry.loadedAt() >= ttlNanos) {
+            return null;
+        }
+        return entry.intervals();
+    }
+
+    private Intervals intervals(String carID) {
+        Intervals intervals = cached(carID);
+        return intervals != null ? intervals : reload(carID);
+    }
+
+    private Intervals reload(String carID) {
+        int stripe = stripe(carID);
+        long version = versions.get(stripe);
+        long loadedAt = System.nanoTime();
+        Entry loaded = new Entry(Intervals.of(loader.apply(carID)), loadedAt);
+        // A rent committed while loading may be missing from the load and its change may have found no
+        // entry to apply to, so the load is only cached when no change of the car's stripe happened since
+        entriesByCar.compute(carID, (id, current) -> versions.get(stripe) == version ? loaded : null);
+        return loaded.intervals();
+    }
+
+    private static int stripe(String carID) {
+        return carID.hashCode() & (STRIPES - 1);
+    }
+
+    private record Entry(Intervals intervals, long loadedAt) {
+    }
+
+    /**
+     * Immutable set of inclusive epoch-day periods sorted by start day.
+     * maxEnds[i] holds the latest end among the first i + 1 periods, which keeps lookups
+     * logarithmic even if stored periods happen to overlap.
+     */
+    static final class Intervals {
+        private static final Intervals EMPTY = new Intervals(new long[0], new long[0], new String[0]);
+
+        private final long[] starts;
+        private final long[] ends;
+        private final long[] maxEnds;
+        private final String[] rentIDs;
+
+        private Intervals(long[] starts, long[] ends, String[] rentIDs) {
+            this.starts = starts;
+            this.ends = ends;
+            this.rentIDs = rentIDs;
+            this.maxEnds = new long[ends.length];
+            for (int i = 0; i < ends.length; i++) {
+                maxEnds[i] = i == 0 ? ends[i] : Math.max(maxEnds[i - 1], ends[i]);
+            }
+        }
+
+        static Intervals of(List<Rent> rents) {
+            if (rents.isEmpty()) {
+                return EMPTY;
+            }
+            Rent[] sorted = rents.toArray(new Rent[0]);
+            Arrays.sort(sorted, (first, second) -> first.rentDate().compareTo(second.rentDate()));
+            long[] starts = new long[sorted.length];
+            long[] ends = new long[sorted.length];
+            String[] rentIDs = new String[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                starts[i] = sorted[i].rentDate().toEpochDay();
+                ends[i] = sorted[i].dueDate().toEpochDay();
+                rentIDs[i] = sorted[i].uuid();
+            }
+            return new Intervals(starts, ends, rentIDs);
+        }
+
+        boolean conflicts(long from, long to, String excludedRentID) {
+            for (int i = lastStartingBefore(to + 1); i >= 0 && maxEnds[i] >= from; i--) {
+                if (ends[i] >= from && !rentIDs[i].equals(excludedRentID)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long earliestFreeWindow(long notBefore, int days) {
+            long candidate = notBefore;
+            // Periods whose maxEnd lies before the candidate can never block it
+            int i = firstMaxEndFrom(candidate);
+            for (; i < starts.length; i++) {
+                if (starts[i] > candidate + days - 1) {
+                    break;
+                }
+                candidate = Math.max(candidate, ends[i] + 1);
+            }
+            return candidate;
+        }
+
+        Intervals with(long from, long to, String rentID) {
+            int at = lastStartingBefore(from + 1) + 1;
+            return new Intervals(insert(starts, at, from), insert(ends, at, to), insert(rentIDs, at, rentID));
+        }
+
+        Intervals without(String rentID) {
+            for (int i = 0; i < rentIDs.length; i++) {
+                if (rentIDs[i].equals(rentID)) {
+                    return new Intervals(remove(starts, i), remove(ends, i), remove(rentIDs, i));
+                }
+            }
+            return this;
+        }
+
+        /** Index of the last period starting before {@code day}, or -1. */
+        private int lastStartingBefore(long day) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+
+        /** Index of the first period whose maxEnd is not before {@code day}, or length. */
+        private int firstMaxEndFrom(long day) {
+            int low = 0;
+            int high = maxEnds.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (maxEnds[mid] < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        private static long[] insert(long[] array, int at, long value) {
+            long[] result = Arrays.copyOf(array, array.length + 1);
+            System.arraycopy(array, at, result, at + 1, array.length - at);
+            result[at] = value;
+            return result;
+        }
+
+        private static String[] insert(String[] array, int at, String value) {
+            String[] result = Arrays.copyOf(array, array.length + 1);
+            System.arraycopy(array, at, result, at + 1, array.length - at);
+            result[at] = value;
+            return result;
+        }
+
+        private static long[] remove(long[] array, int at) {
+            long[] result = new long[array.length - 1];
+            System.arraycopy(array, 0, result, 0, at);
+            System.arraycopy(array, at + 1, result, at, array.length - at - 1);
+            return result;
+        }
+
+        private static String[] remove(String[] array, int at) {
+            String[] result = new String[array.length - 1];
+            System.arraycopy(array, 0, result, 0, at);
+            System.arraycopy(array, at + 1, result, at, array.length - at - 1);
+            return result;
+        }
+    }
+}
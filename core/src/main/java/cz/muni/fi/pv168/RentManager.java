@@ -1,8 +1,11 @@
 package cz.muni.fi.pv168;
 
 import java.io.FileOutputStream;
-import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 public interface RentManager {
@@ -11,9 +14,21 @@ public interface RentManager {
 
     public List<Car> getAllCustomerCars(Customer customer) throws IllegalArgumentException, TransactionException;
 
+    /**
+     * Resolves the rented cars of many customers with a single query.
+     * Every given customer is a key of the result, customers without rents map to an empty list.
+     */
+    public Map<Customer, List<Car>> getCarsForCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Resolves the renting customer of many cars with a single query.
+     * Every given car is a key of the result, cars that are not rented map to null.
+     */
+    public Map<Car, Customer> getCustomersForCars(Collection<Car> cars) throws IllegalArgumentException, TransactionException;
+
     public void addRent(Rent rent) throws IllegalArgumentException, TransactionException;
 
-    public void rentCarToCustomer(Car car, Customer customer, Date rentDate, Date dueDate) throws IllegalArgumentException, TransactionException;
+    public void rentCarToCustomer(Car car, Customer customer, LocalDate rentDate, LocalDate dueDate) throws IllegalArgumentException, TransactionException;
 
     public void getCarFromCustomer(Car car, Customer customer) throws IllegalArgumentException, TransactionException;
 
@@ -23,6 +38,40 @@ public interface RentManager {
 
     public void updateRent(Rent rent) throws IllegalArgumentException, TransactionException;
 
+    public BatchResult<Rent> addRents(Collection<Rent> rents) throws IllegalArgumentException, TransactionException;
+
+    public BatchResult<Rent> updateRents(Collection<Rent> rents) throws IllegalArgumentException, TransactionException;
+
+    public BatchResult<Rent> removeRents(Collection<Rent> rents) throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Checks whether the car has a rent overlapping the inclusive period [rentDate, dueDate].
+     */
+    public boolean hasOverlappingRent(String carID, LocalDate rentDate, LocalDate dueDate) throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Returns the first day not before {@code notBefore} from which the car is free for {@code days} days.
+     */
+    public LocalDate findEarliestFreePeriod(String carID, LocalDate notBefore, int days) throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Streams all rents from the database cursor instead of loading the whole table.
+     * The stream holds an open database session and must be closed by the caller.
+     */
+    public Stream<Rent> streamAllRents() throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Streams the rents of the customer from the database cursor.
+     * The stream holds an open database session and must be closed by the caller.
+     */
+    public Stream<Rent> streamCustomerRents(Customer customer) throws IllegalArgumentException, TransactionException;
+
+    /**
+     * Returns at most {@code limit} rents ordered by ID whose ID is greater than {@code lastId}.
+     * Pass {@code null} to get the first page and the ID of the last returned entry to get the next one.
+     */
+    public List<Rent> getRentsAfter(String lastId, int limit) throws IllegalArgumentException, TransactionException;
+
     public void setDataSource(DataSource ds);
 
     public void setLogger(FileOutputStream fs);
@@ -1,13 +1,23 @@
 package cz.muni.fi.pv168;
 
 import java.io.FileOutputStream;
-import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 import java.util.logging.StreamHandler;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 import javax.sql.DataSource;
@@ -26,19 +36,18 @@ public class RentManagerImplementation implements RentManager {
             throw new IllegalArgumentException("Car is NOT RENTED");
         }
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         try {
-            Query<Rent> query = session.createQuery(
-                    "FROM Rent WHERE carID = :carId", Rent.class);
+            Query<Customer> query = session.createNamedQuery(Rent.FIND_CUSTOMERS_OF_CAR, Customer.class);
             query.setParameter("carId", car.uuid());
-            List<Rent> rents = query.list();
-            if (rents.isEmpty()) {
+            List<Customer> customers = query.list();
+            if (customers.isEmpty()) {
                 return null;
             }
-            if (rents.size() > 1) {
+            if (customers.size() > 1) {
                 throw new IllegalArgumentException("Multiple Customers with same Car");
             }
-            return customerManager.findCustomerByID(rents.get(0).customerID());
+            return customers.get(0);
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Error when getting customer from DB", ex);
             throw new TransactionException("Error when getting customer from DB", ex);
@@ -59,10 +68,9 @@ public class RentManagerImplementation implements RentManager {
             throw new IllegalArgumentException("Car is NOT RENTED");
         }
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         try {
-            Query<Rent> query = session.createQuery(
-                    "FROM Rent WHERE carID = :carId", Rent.class);
+            Query<Rent> query = session.createNamedQuery(Rent.FIND_BY_CAR, Rent.class);
             query.setParameter("carId", car.uuid());
             List<Rent> rents = query.list();
             if (rents.isEmpty()) {
@@ -82,15 +90,11 @@ public class RentManagerImplementation implements RentManager {
 
     @Override
     public List<Rent> getAllRents() throws IllegalArgumentException, TransactionException {
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
         try {
-            Query<Rent> query = session.createQuery("FROM Rent", Rent.class);
-            return query.list();
+            return RentalUnitOfWork.read(session -> session.createNamedQuery(Rent.FIND_ALL, Rent.class).list());
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Error when getting all Customers", ex);
             throw new TransactionException("Error when getting all Customers", ex);
-        } finally {
-            session.close();
         }
     }
 
@@ -106,20 +110,11 @@ public class RentManagerImplementation implements RentManager {
             throw new IllegalArgumentException("CUSTOMER IS NOT ACTIVE");
         }
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         try {
-            Query<Rent> query = session.createQuery(
-                    "FROM Rent WHERE customerID = :customerId", Rent.class);
+            Query<Car> query = session.createNamedQuery(Rent.FIND_CARS_OF_CUSTOMER, Car.class);
             query.setParameter("customerId", customer.uuid());
-            List<Rent> rents = query.list();
-            List<Car> customerCars = new java.util.ArrayList<>();
-            for (Rent rent : rents) {
-                Car car = carManager.findCarByID(rent.carID());
-                if (car != null) {
-                    customerCars.add(car);
-                }
-            }
-            return customerCars;
+            return query.list();
         } catch (Exception ex) {
             logger.log(Level.SEVERE, "Error when getting Cars from Rent DB", ex);
             throw new TransactionException("Error when getting Cars from Rent DB", ex);
@@ -129,53 +124,130 @@ public class RentManagerImplementation implements RentManager {
     }
 
     @Override
-    public void addRent(Rent rent) throws IllegalArgumentException, TransactionException {
-        if (null == rent) {
-            throw new IllegalArgumentException("Can't insert null entry to DB");
+    public Map<Customer, List<Car>> getCarsForCustomers(Collection<Customer> customers) throws IllegalArgumentException, TransactionException {
+        if (null == customers) {
+            throw new IllegalArgumentException("Can't use NULL collection");
         }
-        if (null == rent.uuid()) {
-            throw new IllegalArgumentException("Rent ID is NULL");
+        Map<String, List<Car>> carsByCustomer = new HashMap<>();
+        for (Customer customer : customers) {
+            if (null == customer) {
+                throw new IllegalArgumentException("CUSTOMER POINTS TO NULL");
+            }
+            if (null == customer.uuid()) {
+                throw new IllegalArgumentException("CUSTOMER ID IN NULL");
+            }
+            carsByCustomer.put(customer.uuid(), new ArrayList<>());
         }
-        
-        // Verify Car and Customer exist
-        Car car = carManager.findCarByID(rent.carID());
-        Customer customer = customerManager.findCustomerByID(rent.customerID());
-        
-        if (car == null || customer == null) {
-             throw new IllegalArgumentException("Car or Customer does not exist");
+
+        if (!carsByCustomer.isEmpty()) {
+            Session session = RentalUnitOfWork.openSession();
+            try {
+                Query<Object[]> query = session.createNamedQuery(Rent.FIND_CARS_OF_CUSTOMERS, Object[].class);
+                query.setParameter("customerIds", carsByCustomer.keySet());
+                for (Object[] row : query.list()) {
+                    carsByCustomer.get((String) row[0]).add((Car) row[1]);
+                }
+            } catch (Exception ex) {
+                logger.log(Level.SEVERE, "Error when getting Cars from Rent DB", ex);
+                throw new TransactionException("Error when getting Cars from Rent DB", ex);
+            } finally {
+                session.close();
+            }
         }
 
-        if (rent.rentDate().after(rent.dueDate())) {
-            throw new IllegalArgumentException("Rent start date must be before or equal to end date");
+        Map<Customer, List<Car>> result = new LinkedHashMap<>();
+        for (Customer customer : customers) {
+            result.put(customer, carsByCustomer.get(customer.uuid()));
         }
+        return result;
+    }
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+    @Override
+    public Map<Car, Customer> getCustomersForCars(Collection<Car> cars) throws IllegalArgumentException, TransactionException {
+        if (null == cars) {
+            throw new IllegalArgumentException("Can't use NULL collection");
+        }
+        Set<String> carIds = new HashSet<>();
+        for (Car car : cars) {
+            if (null == car) {
+                throw new IllegalArgumentException("Can't find Car with NULL pointer");
+            }
+            if (null == car.uuid()) {
+                throw new IllegalArgumentException("Can't find Car with NULL ID");
+            }
+            carIds.add(car.uuid());
+        }
+
+        Map<String, Customer> customerByCar = new HashMap<>();
+        if (!carIds.isEmpty()) {
+            Session session = RentalUnitOfWork.openSession();
+            try {
+                Query<Object[]> query = session.createNamedQuery(Rent.FIND_CUSTOMERS_OF_CARS, Object[].class);
+                query.setParameter("carIds", carIds);
+                for (Object[] row : query.list()) {
+                    Customer previous = customerByCar.put((String) row[0], (Customer) row[1]);
+                    if (previous != null && !previous.uuid().equals(((Customer) row[1]).uuid())) {
+                        throw new IllegalArgumentException("Multiple Customers with same Car");
+                    }
+                }
+            } catch (Exception ex) {
+                logger.log(Level.SEVERE, "Error when getting customer from DB", ex);
+                throw new TransactionException("Error when getting customer from DB", ex);
+            } finally {
+                session.close();
+            }
+        }
+
+        Map<Car, Customer> result = new LinkedHashMap<>();
+        for (Car car : cars) {
+            result.put(car, customerByCar.get(car.uuid()));
+        }
+        return result;
+    }
+
+    @Override
+    public void addRent(Rent rent) throws IllegalArgumentException, TransactionException {
+        RentBookedEvent event = new RentBookedEvent();
+        event.begin();
+        checkRentToAdd(rent);
+        if ((null == rent.carID()) || (null == rent.customerID())) {
+            throw new IllegalArgumentException("Car or Customer does not exist");
+        }
+
+        checkRentPeriod(rent);
+        if (checkOverlap(rent.carID(), rent.rentDate(), rent.dueDate(), null)) {
+            throw new IllegalArgumentException("Car is already rented for the selected period");
+        }
+
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            
-            // Check for overlapping rents for the same car
-            Query<Long> overlapQuery = session.createQuery(
-                "SELECT count(r) FROM Rent r WHERE r.carID = :carId AND " +
-                "((:start BETWEEN r.rentDate AND r.dueDate) OR " +
-                "(:end BETWEEN r.rentDate AND r.dueDate) OR " +
-                "(r.rentDate BETWEEN :start AND :end))", Long.class);
-            
-            overlapQuery.setParameter("carId", rent.carID());
-            overlapQuery.setParameter("start", rent.rentDate());
-            overlapQuery.setParameter("end", rent.dueDate());
-            
-            if (overlapQuery.uniqueResult() > 0) {
-                throw new IllegalArgumentException("Car is already rented for the selected period");
+
+            // Verify Car and Customer exist, both are usually served from the second-level cache
+            Car car = session.get(Car.class, rent.carID());
+            Customer customer = session.get(Customer.class, rent.customerID());
+            if (car == null || customer == null) {
+                throw new IllegalArgumentException("Car or Customer does not exist");
             }
 
+            // Overlaps with rents the index does not know about are rejected by the rents_no_overlap constraint
             session.persist(rent);
+            // Dirty checking with dynamic update flushes only the status column of both rows
+            car.available(Boolean.FALSE);
+            customer.active(Boolean.TRUE);
             transaction.commit();
+            RentalUnitOfWork.afterCommit(() -> rentIndex().booked(rent));
             logger.log(Level.INFO, ("New Rent ID " + rent.uuid() + " added"));
-            session.close();
-
-            carManager.updateCarInfo(car.withStatus(Boolean.FALSE));
-            customerManager.updateCustomerInfo(customer.withActive(Boolean.TRUE));
+            if (event.shouldCommit()) {
+                event.rentId = rent.uuid();
+                event.carId = rent.carID();
+                event.customerId = rent.customerID();
+                event.rentDate = rent.rentDate().toString();
+                event.dueDate = rent.dueDate().toString();
+                event.inUnitOfWork = RentalUnitOfWork.isActive();
+                event.commit();
+            }
         } catch (IllegalArgumentException ex) {
             if (transaction != null) {
                 transaction.rollback();
@@ -185,17 +257,20 @@ public class RentManagerImplementation implements RentManager {
             if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                rentIndex().invalidate(rent.carID());
+                throw violation;
+            }
             logger.log(Level.SEVERE, "Error when adding rent to DB", ex);
             throw new TransactionException("Error when adding rent to DB", ex);
         } finally {
-            if (session.isOpen()) {
-                session.close();
-            }
+            session.close();
         }
     }
 
     @Override
-    public void rentCarToCustomer(Car car, Customer customer, Date rentDate, Date dueDate) throws IllegalArgumentException, TransactionException {
+    public void rentCarToCustomer(Car car, Customer customer, LocalDate rentDate, LocalDate dueDate) throws IllegalArgumentException, TransactionException {
         if (car == null) {
             throw new IllegalArgumentException("Car argument is null");
         }
@@ -219,12 +294,13 @@ public class RentManagerImplementation implements RentManager {
             throw new IllegalArgumentException("Customer is not active");
         }
 
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        CarReturnedEvent event = new CarReturnedEvent();
+        event.begin();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            Query<Rent> query = session.createQuery(
-                    "FROM Rent WHERE customerID = :customerId AND carID = :carId", Rent.class);
+            Query<Rent> query = session.createNamedQuery(Rent.FIND_BY_CUSTOMER_AND_CAR, Rent.class);
             query.setParameter("customerId", customer.uuid());
             query.setParameter("carId", car.uuid());
             List<Rent> rents = query.list();
@@ -234,14 +310,30 @@ public class RentManagerImplementation implements RentManager {
             for (Rent rent : rents) {
                 session.remove(rent);
             }
-            transaction.commit();
 
-            if (getAllCustomerCars(customer).isEmpty()) {
-                customerManager.updateCustomerInfo(customer.withActive(Boolean.FALSE));
-            } else {
-                customerManager.updateCustomerInfo(customer);
+            Car storedCar = session.get(Car.class, car.uuid());
+            if (storedCar != null) {
+                storedCar.available(Boolean.TRUE);
+            }
+            Customer storedCustomer = session.get(Customer.class, customer.uuid());
+            if (storedCustomer != null) {
+                // The removals above are flushed before this query runs
+                Query<Long> remainingQuery = session.createNamedQuery(Rent.COUNT_BY_CUSTOMER, Long.class);
+                remainingQuery.setParameter("customerId", customer.uuid());
+                storedCustomer.active(remainingQuery.uniqueResult() > 0);
+            }
+            transaction.commit();
+            RentalUnitOfWork.afterCommit(() -> {
+                for (Rent rent : rents) {
+                    rentIndex().released(rent.carID(), rent.uuid());
+                }
+            });
+            if (event.shouldCommit()) {
+                event.carId = car.uuid();
+                event.customerId = customer.uuid();
+                event.rentsClosed = rents.size();
+                event.commit();
             }
-            carManager.updateCarInfo(car.withStatus(true));
         } catch (IllegalArgumentException ex) {
             if (transaction != null) {
                 transaction.rollback();
@@ -260,44 +352,27 @@ public class RentManagerImplementation implements RentManager {
 
     @Override
     public void updateRent(Rent rent) throws IllegalArgumentException, TransactionException {
-        if (null == rent) {
-            throw new IllegalArgumentException("Can't update NULL rent");
-        }
-        if (null == rent.uuid()) {
-            throw new IllegalArgumentException("Can't update rent with NULL ID");
+        checkRentToUpdate(rent);
+        checkRentPeriod(rent);
+        if (checkOverlap(rent.carID(), rent.rentDate(), rent.dueDate(), rent.uuid())) {
+            throw new IllegalArgumentException("Car is already rented for the selected period");
         }
 
-        if (rent.rentDate().after(rent.dueDate())) {
-            throw new IllegalArgumentException("Rent start date must be before or equal to end date");
-        }
-
-        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        Session session = RentalUnitOfWork.openSession();
         Transaction transaction = null;
         try {
             transaction = session.beginTransaction();
-            
-            // Check for overlapping rents for the same car
-            Query<Long> overlapQuery = session.createQuery(
-                "SELECT count(r) FROM Rent r WHERE r.carID = :carId AND " +
-                "r.id != :rentId AND " + // Exclude itself for updates (though UUID is unique, good practice)
-                "((:start BETWEEN r.rentDate AND r.dueDate) OR " +
-                "(:end BETWEEN r.rentDate AND r.dueDate) OR " +
-                "(r.rentDate BETWEEN :start AND :end))", Long.class);
-            
-            overlapQuery.setParameter("carId", rent.carID());
-            overlapQuery.setParameter("rentId", rent.uuid());
-            overlapQuery.setParameter("start", rent.rentDate());
-            overlapQuery.setParameter("end", rent.dueDate());
-            
-            if (overlapQuery.uniqueResult() > 0) {
-                throw new IllegalArgumentException("Car is already rented for the selected period");
-            }
-
-            if (session.get(Rent.class, rent.uuid()) == null) {
+            Rent stored = session.get(Rent.class, rent.uuid());
+            if (stored == null) {
                 throw new TransactionException("Rent with ID " + rent.uuid() + " does not exist in DB");
             }
+            String previousCarID = stored.carID();
             session.merge(rent);
             transaction.commit();
+            RentalUnitOfWork.afterCommit(() -> {
+                rentIndex().released(previousCarID, rent.uuid());
+                rentIndex().booked(rent);
+            });
             logger.log(Level.INFO, ("Rent ID " + rent.uuid() + " updated"));
         } catch (IllegalArgumentException ex) {
             if (transaction != null) {
@@ -308,6 +383,11 @@ public class RentManagerImplementation implements RentManager {
             if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                rentIndex().invalidate(rent.carID());
+                throw violation;
+            }
             logger.log(Level.SEVERE, "Error when updating Rent in DB", ex);
             throw new TransactionException("Error when updating Rent in DB", ex);
         } finally {
@@ -315,9 +395,449 @@ public class RentManagerImplementation implements RentManager {
         }
     }
 
+    @Override
+    public boolean hasOverlappingRent(String carID, LocalDate rentDate, LocalDate dueDate) throws IllegalArgumentException, TransactionException {
+        if (null == carID) {
+            throw new IllegalArgumentException("Can't check Car with NULL ID");
+        }
+        if (null == rentDate || null == dueDate || rentDate.isAfter(dueDate)) {
+            throw new IllegalArgumentException("Rent start date must be before or equal to end date");
+        }
+        return checkOverlap(carID, rentDate, dueDate, null);
+    }
+
+    private boolean checkOverlap(String carID, LocalDate rentDate, LocalDate dueDate, String excludedRentID) {
+        OverlapCheckEvent event = new OverlapCheckEvent();
+        event.begin();
+        boolean overlapping = rentIndex().conflicts(carID, rentDate, dueDate, excludedRentID);
+        if (event.shouldCommit()) {
+            event.carId = carID;
+            event.rentDate = rentDate.toString();
+            event.dueDate = dueDate.toString();
+            event.overlapping = overlapping;
+            event.commit();
+        }
+        return overlapping;
+    }
+
+    @Override
+    public LocalDate findEarliestFreePeriod(String carID, LocalDate notBefore, int days) throws IllegalArgumentException, TransactionException {
+        if (null == carID) {
+            throw new IllegalArgumentException("Can't check Car with NULL ID");
+        }
+        if (null == notBefore) {
+            throw new IllegalArgumentException("Start of the search must be set");
+        }
+        return rentIndex().earliestFreeWindow(carID, notBefore, days);
+    }
+
+    @Override
+    public Stream<Rent> streamAllRents() throws IllegalArgumentException, TransactionException {
+        return streamRents(session -> session.createNamedQuery(Rent.FIND_ALL, Rent.class));
+    }
+
+    @Override
+    public Stream<Rent> streamCustomerRents(Customer customer) throws IllegalArgumentException, TransactionException {
+        if (null == customer) {
+            throw new IllegalArgumentException("CUSTOMER POINTS TO NULL");
+        }
+        if (null == customer.uuid()) {
+            throw new IllegalArgumentException("CUSTOMER ID IN NULL");
+        }
+        return streamRents(session -> session.createNamedQuery(Rent.FIND_BY_CUSTOMER, Rent.class)
+                .setParameter("customerId", customer.uuid()));
+    }
+
+    private Stream<Rent> streamRents(Function<StatelessSession, Query<Rent>> queryFactory) throws TransactionException {
+        // A stateless session keeps no persistence context, so streamed rows do not pile up in memory.
+        // PostgreSQL only honours the fetch size inside a transaction, otherwise it reads the whole result at once.
+        StatelessSession session = HibernateSessionFactory.getSessionFactory().openStatelessSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            Query<Rent> query = queryFactory.apply(session);
+            query.setFetchSize(HibernateSessionFactory.getJdbcFetchSize());
+            return query.stream().onClose(() -> {
+                try {
+                    transaction.rollback();
+                } finally {
+                    session.close();
+                }
+            });
+        } catch (Exception ex) {
+            session.close();
+            logger.log(Level.SEVERE, "Error when streaming Rents from DB", ex);
+            throw new TransactionException("Error when streaming Rents from DB", ex);
+        }
+    }
+
+    @Override
+    public List<Rent> getRentsAfter(String lastId, int limit) throws IllegalArgumentException, TransactionException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        if (null != lastId && !UuidStringJavaType.isValid(lastId)) {
+            throw new IllegalArgumentException("Page cursor is not a valid ID");
+        }
+
+        Session session = RentalUnitOfWork.openSession();
+        try {
+            Query<Rent> query;
+            if (null == lastId) {
+                query = session.createNamedQuery(Rent.FIND_FIRST_PAGE, Rent.class);
+            } else {
+                query = session.createNamedQuery(Rent.FIND_PAGE_AFTER, Rent.class);
+                query.setParameter("lastId", lastId);
+            }
+            query.setMaxResults(limit);
+            return query.list();
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, "Error when getting page of Rents from DB", ex);
+            throw new TransactionException("Error when getting page of Rents from DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Rent> addRents(Collection<Rent> rents) throws IllegalArgumentException, TransactionException {
+        if (null == rents) {
+            throw new IllegalArgumentException("Can't insert null collection to DB");
+        }
+
+        BatchResult<Rent> result = new BatchResult<>();
+        Map<String, Rent> rentsById = new LinkedHashMap<>();
+        for (Rent rent : rents) {
+            try {
+                checkRentToAdd(rent);
+                if (null == rent.carID() || null == rent.customerID()) {
+                    throw new IllegalArgumentException("Car or Customer does not exist");
+                }
+                checkRentPeriod(rent);
+                if (rentsById.putIfAbsent(rent.uuid(), rent) != null) {
+                    throw new IllegalArgumentException("Rent with ID " + rent.uuid() + " added twice in one batch");
+                }
+            } catch (IllegalArgumentException ex) {
+                result.rejected(rent, ex);
+            }
+        }
+        if (rentsById.isEmpty()) {
+            return result;
+        }
+
+        int batchSize = HibernateSessionFactory.getJdbcBatchSize();
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Set<String> carIds = new HashSet<>();
+            Set<String> customerIds = new HashSet<>();
+            for (Rent rent : rentsById.values()) {
+                carIds.add(rent.carID());
+                customerIds.add(rent.customerID());
+            }
+            // The cars and customers stay managed, their flags are dirty checked and updated in the
+            // second-level cache entry by entry instead of a bulk UPDATE evicting both regions
+            Map<String, Car> cars = new HashMap<>();
+            for (Car car : session.createNamedQuery(Car.FIND_BY_IDS, Car.class)
+                    .setParameterList("ids", carIds)
+                    .list()) {
+                cars.put(car.uuid(), car);
+            }
+            Map<String, Customer> customers = new HashMap<>();
+            for (Customer customer : session.createNamedQuery(Customer.FIND_BY_IDS, Customer.class)
+                    .setParameterList("ids", customerIds)
+                    .list()) {
+                customers.put(customer.uuid(), customer);
+            }
+            Map<String, List<Rent>> bookings = findBookings(session, rentsById.values(), carIds, null);
+
+            List<Rent> pending = new ArrayList<>();
+            for (Rent rent : rentsById.values()) {
+                Car car = cars.get(rent.carID());
+                Customer customer = customers.get(rent.customerID());
+                if (null == car || null == customer) {
+                    result.rejected(rent, new IllegalArgumentException("Car or Customer does not exist"));
+                    continue;
+                }
+                List<Rent> carBookings = bookings.computeIfAbsent(rent.carID(), id -> new ArrayList<>());
+                if (carBookings.stream().anyMatch(booked -> overlaps(booked, rent))) {
+                    result.rejected(rent, new IllegalArgumentException("Car is already rented for the selected period"));
+                    continue;
+                }
+                session.persist(rent);
+                car.available(Boolean.FALSE);
+                customer.active(Boolean.TRUE);
+                carBookings.add(rent);
+                result.written(rent);
+                pending.add(rent);
+                if (pending.size() == batchSize) {
+                    // Only the written rents are detached, the cars and customers must stay managed
+                    session.flush();
+                    pending.forEach(session::detach);
+                    pending.clear();
+                }
+            }
+            transaction.commit();
+            RentalUnitOfWork.afterCommit(() -> result.written().forEach(rentIndex()::booked));
+            logger.log(Level.INFO, (result.written().size() + " new Rents added"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                // Another writer booked one of the cars since the batch was checked
+                rentIndex().clear();
+                throw violation;
+            }
+            logger.log(Level.SEVERE, "Error when adding rents to DB", ex);
+            throw new TransactionException("Error when adding rents to DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Rent> updateRents(Collection<Rent> rents) throws IllegalArgumentException, TransactionException {
+        if (null == rents) {
+            throw new IllegalArgumentException("Can't update NULL collection of rents");
+        }
+
+        BatchResult<Rent> result = new BatchResult<>();
+        Map<String, Rent> rentsById = new LinkedHashMap<>();
+        for (Rent rent : rents) {
+            try {
+                checkRentToUpdate(rent);
+                checkRentPeriod(rent);
+                if (rentsById.putIfAbsent(rent.uuid(), rent) != null) {
+                    throw new IllegalArgumentException("Rent with ID " + rent.uuid() + " updated twice in one batch");
+                }
+            } catch (IllegalArgumentException ex) {
+                result.rejected(rent, ex);
+            }
+        }
+        if (rentsById.isEmpty()) {
+            return result;
+        }
+
+        int batchSize = HibernateSessionFactory.getJdbcBatchSize();
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            // Loading the stored rents up front lets merge() copy state without a SELECT per rent
+            Map<String, String> previousCarIDs = new HashMap<>();
+            for (Rent stored : session.createNamedQuery(Rent.FIND_BY_IDS, Rent.class)
+                    .setParameterList("ids", rentsById.keySet())
+                    .list()) {
+                previousCarIDs.put(stored.uuid(), stored.carID());
+            }
+            Set<String> carIds = new HashSet<>();
+            for (Rent rent : rentsById.values()) {
+                carIds.add(rent.carID());
+            }
+            Map<String, List<Rent>> bookings = findBookings(session, rentsById.values(), carIds, rentsById.keySet());
+
+            int pending = 0;
+            for (Rent rent : rentsById.values()) {
+                if (!previousCarIDs.containsKey(rent.uuid())) {
+                    result.rejected(rent, new TransactionException("Rent with ID " + rent.uuid() + " does not exist in DB"));
+                    continue;
+                }
+                List<Rent> carBookings = bookings.computeIfAbsent(rent.carID(), id -> new ArrayList<>());
+                if (carBookings.stream().anyMatch(booked -> overlaps(booked, rent))) {
+                    result.rejected(rent, new IllegalArgumentException("Car is already rented for the selected period"));
+                    continue;
+                }
+                session.merge(rent);
+                carBookings.add(rent);
+                result.written(rent);
+                if (++pending % batchSize == 0) {
+                    session.flush();
+                }
+            }
+            transaction.commit();
+            RentalUnitOfWork.afterCommit(() -> {
+                for (Rent rent : result.written()) {
+                    rentIndex().released(previousCarIDs.get(rent.uuid()), rent.uuid());
+                    rentIndex().booked(rent);
+                }
+            });
+            logger.log(Level.INFO, (result.written().size() + " Rents updated"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            IllegalArgumentException violation = ConstraintViolations.translate(ex);
+            if (violation != null) {
+                // Another writer booked one of the cars since the batch was checked
+                rentIndex().clear();
+                throw violation;
+            }
+            logger.log(Level.SEVERE, "Error when updating Rents in DB", ex);
+            throw new TransactionException("Error when updating Rents in DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Override
+    public BatchResult<Rent> removeRents(Collection<Rent> rents) throws IllegalArgumentException, TransactionException {
+        if (null == rents) {
+            throw new IllegalArgumentException("Can't remove NULL collection of rents");
+        }
+
+        BatchResult<Rent> result = new BatchResult<>();
+        Map<String, Rent> rentsById = new LinkedHashMap<>();
+        for (Rent rent : rents) {
+            if (null == rent) {
+                result.rejected(rent, new IllegalArgumentException("Can't remove NULL rent"));
+            } else if (null == rent.uuid()) {
+                result.rejected(rent, new IllegalArgumentException("Can't remove rent with NULL ID"));
+            } else {
+                rentsById.putIfAbsent(rent.uuid(), rent);
+            }
+        }
+        if (rentsById.isEmpty()) {
+            return result;
+        }
+
+        Session session = RentalUnitOfWork.openSession();
+        Transaction transaction = null;
+        try {
+            transaction = session.beginTransaction();
+
+            Map<String, String> carIDs = new HashMap<>();
+            Set<String> affectedCustomers = new HashSet<>();
+            for (Object[] row : session.createNamedQuery(Rent.FIND_KEYS_BY_IDS, Object[].class)
+                    .setParameterList("ids", rentsById.keySet())
+                    .list()) {
+                carIDs.put((String) row[0], (String) row[1]);
+                affectedCustomers.add((String) row[2]);
+            }
+            Set<String> existingIds = carIDs.keySet();
+            Set<String> returnedCars = new HashSet<>(carIDs.values());
+
+            for (Rent rent : rentsById.values()) {
+                if (existingIds.contains(rent.uuid())) {
+                    result.written(rent);
+                } else {
+                    result.rejected(rent, new TransactionException("Rent not found"));
+                }
+            }
+            if (!existingIds.isEmpty()) {
+                // Rents are not cached, deleting them in bulk evicts nothing. The flags are set on the
+                // managed cars and customers so that only their entries change in the second-level cache.
+                session.createNamedMutationQuery(Rent.DELETE_BY_IDS)
+                    .setParameterList("ids", existingIds)
+                    .executeUpdate();
+                for (Car car : session.createNamedQuery(Car.FIND_BY_IDS, Car.class)
+                        .setParameterList("ids", returnedCars)
+                        .list()) {
+                    car.available(Boolean.TRUE);
+                }
+                affectedCustomers.removeAll(session.createNamedQuery(Rent.FIND_RENTING_CUSTOMERS, String.class)
+                    .setParameterList("customerIds", affectedCustomers)
+                    .list());
+                if (!affectedCustomers.isEmpty()) {
+                    for (Customer customer : session.createNamedQuery(Customer.FIND_BY_IDS, Customer.class)
+                            .setParameterList("ids", affectedCustomers)
+                            .list()) {
+                        customer.active(Boolean.FALSE);
+                    }
+                }
+            }
+            transaction.commit();
+            RentalUnitOfWork.afterCommit(() -> carIDs.forEach((rentID, carID) -> rentIndex().released(carID, rentID)));
+            logger.log(Level.INFO, (result.written().size() + " Rents removed"));
+            return result;
+        } catch (Exception ex) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.log(Level.SEVERE, "Error when DELETE Rents from DB", ex);
+            throw new TransactionException("Error when DELETE Rents from DB", ex);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Loads the stored rents of the given cars that fall into the period spanned by the batch,
+     * grouped by car, so that overlaps can be checked in memory with a single query.
+     */
+    private static Map<String, List<Rent>> findBookings(Session session, Collection<Rent> batch,
+            Set<String> carIds, Set<String> excludedRentIds) {
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Rent rent : batch) {
+            if (from == null || rent.rentDate().isBefore(from)) {
+                from = rent.rentDate();
+            }
+            if (to == null || rent.dueDate().isAfter(to)) {
+                to = rent.dueDate();
+            }
+        }
+
+        Query<Rent> query;
+        if (excludedRentIds == null) {
+            query = session.createNamedQuery(Rent.FIND_IN_PERIOD, Rent.class);
+        } else {
+            query = session.createNamedQuery(Rent.FIND_IN_PERIOD_EXCEPT, Rent.class);
+            query.setParameterList("excluded", excludedRentIds);
+        }
+        query.setParameterList("carIds", carIds);
+        query.setParameter("from", from);
+        query.setParameter("to", to);
+
+        Map<String, List<Rent>> bookings = new HashMap<>();
+        for (Rent booked : query.list()) {
+            bookings.computeIfAbsent(booked.carID(), id -> new ArrayList<>()).add(booked);
+        }
+        return bookings;
+    }
+
+    private static boolean overlaps(Rent first, Rent second) {
+        return !first.rentDate().isAfter(second.dueDate()) && !second.rentDate().isAfter(first.dueDate());
+    }
+
+    private static void checkRentToAdd(Rent rent) {
+        if (null == rent) {
+            throw new IllegalArgumentException("Can't insert null entry to DB");
+        }
+        if (null == rent.uuid()) {
+            throw new IllegalArgumentException("Rent ID is NULL");
+        }
+        if (!UuidStringJavaType.isValid(rent.uuid())) {
+            throw new IllegalArgumentException("Rent ID is not a valid UUID");
+        }
+    }
+
+    private static void checkRentToUpdate(Rent rent) {
+        if (null == rent) {
+            throw new IllegalArgumentException("Can't update NULL rent");
+        }
+        if (null == rent.uuid()) {
+            throw new IllegalArgumentException("Can't update rent with NULL ID");
+        }
+    }
+
+    private static void checkRentPeriod(Rent rent) {
+        if (null == rent.rentDate() || null == rent.dueDate()) {
+            throw new IllegalArgumentException("Rent start and end date must be set");
+        }
+        if (rent.rentDate().isAfter(rent.dueDate())) {
+            throw new IllegalArgumentException("Rent start date must be before or equal to end date");
+        }
+    }
+
     public void tryCreateTables() {
         try {
-            // Hibernate auto-creates tables based on hibernate.cfg.xml hbm2ddl.auto setting
+            // Building the SessionFactory applies pending schema migrations, see SchemaMigrations
             HibernateSessionFactory.getSessionFactory().openSession().close();
         } catch (Exception ex) {
             throw new IllegalStateException("Error when trying to create tables", ex);
@@ -328,13 +848,28 @@ public class RentManagerImplementation implements RentManager {
     public void setDataSource(DataSource dataSource) {
         // Deprecated - using Hibernate SessionFactory instead
         // Keep for backward compatibility
-        carManager.setDataSource(dataSource);
-        customerManager.setDataSource(dataSource);
     }
 
     public static final Logger logger = Logger.getLogger(CarManagerImplementation.class.getName());
-    private CustomerManager customerManager = new CustomerManagerImplementation();
-    private CarManager carManager = new CarManagerImplementation();
+
+    private static RentIntervalIndex rentIndex() {
+        return HibernateSessionFactory.getRentIntervalIndex();
+    }
+
+    static List<Rent> loadCarRents(String carID) {
+        // Always a separate session, the index must never cache rows of an uncommitted unit of work
+        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        try {
+            Query<Rent> query = session.createNamedQuery(Rent.FIND_BY_CAR, Rent.class);
+            query.setParameter("carId", carID);
+            return query.list();
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, "Error when loading rents of Car " + carID, ex);
+            throw new TransactionException("Error when loading rents of Car " + carID, ex);
+        } finally {
+            session.close();
+        }
+    }
 
     @Override
     public void setLogger(FileOutputStream fs) {
@@ -0,0 +1,228 @@
+package cz.muni.fi.pv168;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+/**
+ * Runs several manager calls in one Session and one database transaction.
+ * While a unit of work is active on the current thread (platform or virtual), every manager call made
+ * from that thread reuses its session: beginTransaction() joins the shared transaction, commit() only
+ * flushes, close() does nothing. The transaction is committed once when the unit of work returns.
+ *
+ * A manager call that fails inside the unit rolls back the whole unit of work, also when the caller
+ * catches its exception. Units of work started inside another one join the outer unit.
+ * Streaming reads use their own stateless session and do not take part in the unit of work.
+ *
+ * <pre>
+ * RentalUnitOfWork.run(() -&gt; {
+ *     customerManager.addCustomer(customer);
+ *     carManager.addCar(car);
+ *     rentManager.addRent(Rent.create(from, to, car.uuid(), customer.uuid()));
+ * });
+ * </pre>
+ */
+public final class RentalUnitOfWork {
+
+    private static final ThreadLocal<RentalUnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final Session session;
+    private final Transaction transaction;
+    private final Session sharedSession;
+    private final Transaction sharedTransaction;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private boolean rollbackOnly;
+
+    private RentalUnitOfWork(Session session) {
+        this.session = session;
+        this.transaction = session.beginTransaction();
+        this.sharedTransaction = (Transaction) Proxy.newProxyInstance(Transaction.class.getClassLoader(),
+                new Class<?>[] {Transaction.class}, this::invokeTransaction);
+        this.sharedSession = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[] {Session.class}, this::invokeSession);
+    }
+
+    /**
+     * Runs the work in one session and transaction and commits it when the work returns.
+     *
+     * @param work manager calls to run together
+     * @return the value returned by the work
+     * @throws TransactionException when a manager call inside the work failed, or the commit failed
+     */
+    public static <T> T execute(Supplier<T> work) throws TransactionException {
+        if (CURRENT.get() != null) {
+            return work.get();
+        }
+
+        try (Span span = Tracing.startSpan("RentalUnitOfWork")) {
+            try {
+                return begin(work);
+            } catch (RuntimeException ex) {
+                span.error(ex);
+                throw ex;
+            }
+        }
+    }
+
+    private static <T> T begin(Supplier<T> work) throws TransactionException {
+        RentalUnitOfWork unit;
+        T result;
+        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        try {
+            unit = new RentalUnitOfWork(session);
+            CURRENT.set(unit);
+            try {
+                result = work.get();
+            } catch (RuntimeException ex) {
+                unit.rollback();
+                throw ex;
+            }
+            if (unit.rollbackOnly) {
+                unit.rollback();
+                throw new TransactionException("Unit of work rolled back after a failed manager call");
+            }
+            try {
+                unit.transaction.commit();
+            } catch (RuntimeException ex) {
+                unit.rollback();
+                logger.log(Level.SEVERE, "Error when committing unit of work", ex);
+                throw new TransactionException("Error when committing unit of work", ex);
+            }
+        } finally {
+            CURRENT.remove();
+            session.close();
+        }
+        unit.afterCommit.forEach(Runnable::run);
+        return result;
+    }
+
+    public static void run(Runnable work) throws TransactionException {
+        execute(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Get the session of the unit of work active on the current thread, or a new session if there is none.
+     * Callers close the returned session as usual.
+     */
+    static Session openSession() {
+        RentalUnitOfWork unit = CURRENT.get();
+        return unit == null ? HibernateSessionFactory.getSessionFactory().openSession() : unit.sharedSession;
+    }
+
+    /**
+     * Get a session for a read-only call. Outside a unit of work the session loads entities read-only and never
+     * flushes, so Hibernate keeps no snapshots for dirty checking. Entity and query caches are used as usual.
+     * Inside a unit of work the shared session is returned, so the read sees the unit's own writes.
+     */
+    static Session openReadOnlySession() {
+        RentalUnitOfWork unit = CURRENT.get();
+        if (unit != null) {
+            return unit.sharedSession;
+        }
+        Session session = HibernateSessionFactory.getSessionFactory().openSession();
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        return session;
+    }
+
+    /**
+     * Runs a query-only read. Outside a unit of work it runs in a stateless session, which has no persistence
+     * context at all, on a connection marked read-only. Inside a unit of work it uses the shared session.
+     */
+    static <T> T read(Function<SharedSessionContract, T> query) {
+        RentalUnitOfWork unit = CURRENT.get();
+        if (unit != null) {
+            return query.apply(unit.sharedSession);
+        }
+        try (StatelessSession session = HibernateSessionFactory.getSessionFactory().openStatelessSession()) {
+            // The pool restores hibernate.dbcp.defaultReadOnly when the connection is borrowed again
+            session.doWork(connection -> connection.setReadOnly(true));
+            return query.apply(session);
+        }
+    }
+
+    /**
+     * Runs the action once the unit of work active on the current thread commits, or immediately if there is none.
+     * Actions of a unit of work that rolls back are dropped.
+     */
+    static void afterCommit(Runnable action) {
+        RentalUnitOfWork unit = CURRENT.get();
+        if (unit == null) {
+            action.run();
+        } else {
+            unit.afterCommit.add(action);
+        }
+    }
+
+    private void rollback() {
+        if (transaction.isActive()) {
+            transaction.rollback();
+        }
+    }
+
+    private Object invokeSession(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                return null;
+            case "beginTransaction":
+            case "getTransaction":
+                return sharedTransaction;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return delegate(session, method, args);
+        }
+    }
+
+    private Object invokeTransaction(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "begin":
+                return null;
+            case "commit":
+                session.flush();
+                return null;
+            case "rollback":
+            case "setRollbackOnly":
+                rollbackOnly = true;
+                return null;
+            case "getRollbackOnly":
+                return rollbackOnly;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return delegate(transaction, method, args);
+        }
+    }
+
+    private static Object delegate(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    public static final Logger logger = Logger.getLogger(RentalUnitOfWork.class.getName());
+}
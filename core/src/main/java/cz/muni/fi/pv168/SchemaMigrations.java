@@ -0,0 +1,271 @@
+package cz.muni.fi.pv168;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.hibernate.cfg.AvailableSettings;
+
+/**
+ * Versioned schema migrations applied before the SessionFactory is built.
+ * The scripts in cz/muni/fi/pv168/migrations are applied in version order, each one in its own transaction,
+ * and recorded in the schema_version table with a checksum. Applied scripts are skipped, so a startup
+ * against an up to date database runs a single query. Hibernate then only validates the schema
+ * (hibernate.hbm2ddl.auto=validate) instead of dropping and creating it.
+ *
+ * Scripts are never edited once released, a changed checksum fails the startup. Schema changes go to a new
+ * script added to {@link #SCRIPTS}. Statements in a script end with a semicolon at the end of a line.
+ *
+ * Settings:
+ * <ul>
+ *   <li>hibernate.migration.enabled - apply pending migrations on startup</li>
+ *   <li>hibernate.migration.baseline_version - for a database created before the migrations existed,
+ *       e.g. by postgres-init.sql, the version its schema already has. Only newer scripts are applied.</li>
+ * </ul>
+ */
+public final class SchemaMigrations {
+
+    public static final String ENABLED = "hibernate.migration.enabled";
+    public static final String BASELINE_VERSION = "hibernate.migration.baseline_version";
+
+    static final String HISTORY_TABLE = "schema_version";
+    private static final String LOCATION = "/cz/muni/fi/pv168/migrations/";
+    private static final List<String> SCRIPTS = List.of(
+            "V1__create_tables.sql",
+            "V2__rent_overlap.sql",
+            "V3__unique_keys.sql");
+    private static final Set<String> SCHEMA_GENERATION = Set.of("create", "create-drop", "create-only", "drop");
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Applies the pending migrations if hibernate.migration.enabled is set.
+     *
+     * @param settings Hibernate configuration properties, the JDBC connection settings are taken from them
+     * @return number of migrations applied
+     * @throws TransactionException when a migration failed, or the recorded history does not match the scripts
+     */
+    public static int migrate(Map<?, ?> settings) throws TransactionException {
+        if (!Boolean.parseBoolean(setting(settings, ENABLED, "false"))) {
+            return 0;
+        }
+        String schemaAction = setting(settings, AvailableSettings.HBM2DDL_AUTO, "none");
+        if (SCHEMA_GENERATION.contains(schemaAction)) {
+            logger.log(Level.WARNING, "Schema migrations skipped, hibernate.hbm2ddl.auto=" + schemaAction
+                    + " creates the schema itself, without the rents_no_overlap constraint of migration V2");
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        try (Connection connection = connect(settings)) {
+            connection.setAutoCommit(false);
+            Map<Integer, Long> applied = loadHistory(connection, Integer.parseInt(setting(settings, BASELINE_VERSION, "0")));
+
+            int count = 0;
+            for (Migration migration : migrations()) {
+                if (applied.containsKey(migration.version())) {
+                    Long checksum = applied.remove(migration.version());
+                    if (checksum != null && checksum != migration.checksum()) {
+                        throw new TransactionException("Migration " + migration.script()
+                                + " was changed after it had been applied to the database");
+                    }
+                    continue;
+                }
+                apply(connection, migration);
+                count++;
+            }
+            if (!applied.isEmpty()) {
+                throw new TransactionException("Database schema has migrations " + applied.keySet()
+                        + " unknown to this version of the application");
+            }
+            logger.log(Level.INFO, "Schema is up to date, " + count + " migrations applied in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return count;
+        } catch (SQLException ex) {
+            logger.log(Level.SEVERE, "Error when migrating database schema", ex);
+            throw new TransactionException("Error when migrating database schema", ex);
+        }
+    }
+
+    private static Connection connect(Map<?, ?> settings) throws SQLException {
+        String driver = JdbcConnectionSettings.driver(settings);
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException ex) {
+                throw new TransactionException("JDBC driver " + driver + " not found", ex);
+            }
+        }
+        return DriverManager.getConnection(JdbcConnectionSettings.url(settings),
+                JdbcConnectionSettings.user(settings), JdbcConnectionSettings.password(settings));
+    }
+
+    /**
+     * Get the applied versions with their checksums, creating the history table on first use.
+     * Versions recorded by a baseline have no checksum.
+     */
+    private static Map<Integer, Long> loadHistory(Connection connection, int baselineVersion) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        if (tableExists(connection, HISTORY_TABLE)) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+                while (rows.next()) {
+                    long checksum = rows.getLong(2);
+                    applied.put(rows.getInt(1), rows.wasNull() ? null : checksum);
+                }
+            }
+            connection.commit();
+            return applied;
+        }
+
+        if (baselineVersion == 0 && tableExists(connection, "cars")) {
+            throw new TransactionException("Database has tables but no " + HISTORY_TABLE + " table, set "
+                    + BASELINE_VERSION + " to the version its schema already has");
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + HISTORY_TABLE + " ("
+                    + "version INTEGER NOT NULL PRIMARY KEY, "
+                    + "description VARCHAR(200) NOT NULL, "
+                    + "checksum BIGINT, "
+                    + "applied_on TIMESTAMP NOT NULL, "
+                    + "execution_ms BIGINT NOT NULL)");
+        }
+        for (Migration migration : migrations()) {
+            if (migration.version() <= baselineVersion) {
+                record(connection, migration.version(), "<< baseline >> " + migration.description(), null, 0);
+                applied.put(migration.version(), null);
+            }
+        }
+        connection.commit();
+        return applied;
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        // Unquoted names are stored in lower case by PostgreSQL and in upper case by most other databases
+        for (String name : new String[] {table, table.toUpperCase()}) {
+            try (ResultSet tables = metaData.getTables(null, null, name, new String[] {"TABLE"})) {
+                if (tables.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.statements()) {
+                statement.execute(sql);
+            }
+            // A second instance migrating at the same time fails here on the primary key and rolls back
+            record(connection, migration.version(), migration.description(), migration.checksum(),
+                    (System.nanoTime() - start) / 1_000_000);
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw new SQLException("Migration " + migration.script() + " failed: " + ex.getMessage(), ex.getSQLState(), ex);
+        }
+        logger.log(Level.INFO, "Applied migration " + migration.script());
+    }
+
+    private static void record(Connection connection, int version, String description, Long checksum, long executionMillis)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + HISTORY_TABLE
+                + " (version, description, checksum, applied_on, execution_ms) VALUES (?, ?, ?, ?, ?)")) {
+            insert.setInt(1, version);
+            insert.setString(2, description);
+            if (checksum == null) {
+                insert.setNull(3, Types.BIGINT);
+            } else {
+                insert.setLong(3, checksum);
+            }
+            insert.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            insert.setLong(5, executionMillis);
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Get the migration scripts shipped with the application, in version order.
+     */
+    static List<Migration> migrations() {
+        List<Migration> migrations = new ArrayList<>();
+        for (String script : SCRIPTS) {
+            migrations.add(Migration.load(script));
+        }
+        return migrations;
+    }
+
+    private static String setting(Map<?, ?> settings, String key, String defaultValue) {
+        Object value = settings.get(key);
+        return value == null ? defaultValue : value.toString().trim();
+    }
+
+    /**
+     * One migration script, named V&lt;version&gt;__&lt;description&gt;.sql.
+     */
+    record Migration(int version, String description, String script, String sql) {
+
+        static Migration load(String script) {
+            try (InputStream in = SchemaMigrations.class.getResourceAsStream(LOCATION + script)) {
+                if (in == null) {
+                    throw new IllegalStateException("Migration script " + script + " not found");
+                }
+                String name = script.substring(1, script.length() - ".sql".length());
+                int separator = name.indexOf("__");
+                String sql = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+                return new Migration(Integer.parseInt(name.substring(0, separator)),
+                        name.substring(separator + 2).replace('_', ' '), script, sql);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Can't read migration script " + script, ex);
+            }
+        }
+
+        long checksum() {
+            CRC32 crc = new CRC32();
+            crc.update(sql.getBytes(StandardCharsets.UTF_8));
+            return crc.getValue();
+        }
+
+        List<String> statements() {
+            List<String> statements = new ArrayList<>();
+            StringBuilder statement = new StringBuilder();
+            for (String line : sql.split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                statement.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    statements.add(statement.substring(0, statement.lastIndexOf(";")).trim());
+                    statement.setLength(0);
+                }
+            }
+            if (!statement.toString().isBlank()) {
+                statements.add(statement.toString().trim());
+            }
+            return statements;
+        }
+    }
+
+    public static final Logger logger = Logger.getLogger(SchemaMigrations.class.getName());
+}
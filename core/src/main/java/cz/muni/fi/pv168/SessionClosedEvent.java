@@ -0,0 +1,39 @@
+package cz.muni.fi.pv168;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a Hibernate session being closed, the duration is the lifetime of the session.
+ * See {@link FlightRecorderSessionListener}.
+ */
+@Name("cz.muni.fi.pv168.SessionClosed")
+@Label("Session Closed")
+@Category({"Car Rental", "Database"})
+@Description("Hibernate session closed, with the work done while it was open")
+final class SessionClosedEvent extends jdk.jfr.Event {
+
+    @Label("Session")
+    long sessionId;
+
+    @Label("Connections Acquired")
+    int connectionAcquisitions;
+
+    @Label("Statements Executed")
+    @Description("JDBC statement and batch executions")
+    int statements;
+
+    @Label("Flushes")
+    int flushes;
+
+    @Label("Entities Flushed")
+    int entitiesFlushed;
+
+    @Label("Transactions Committed")
+    int commits;
+
+    @Label("Transactions Rolled Back")
+    int rollbacks;
+}
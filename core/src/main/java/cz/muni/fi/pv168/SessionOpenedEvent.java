@@ -0,0 +1,20 @@
+package cz.muni.fi.pv168;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a Hibernate session being opened, see {@link FlightRecorderSessionListener}.
+ */
+@Name("cz.muni.fi.pv168.SessionOpened")
+@Label("Session Opened")
+@Category({"Car Rental", "Database"})
+@Description("Hibernate session opened")
+final class SessionOpenedEvent extends jdk.jfr.Event {
+
+    @Label("Session")
+    @Description("Matches the Session Closed event of the same session")
+    long sessionId;
+}
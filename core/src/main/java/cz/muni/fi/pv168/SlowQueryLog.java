@@ -0,0 +1,292 @@
+package cz.muni.fi.pv168;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Times every SQL statement executed on the connections it wraps. Statements are grouped by fingerprint,
+ * the SQL with comments, literals and IN lists normalized, so that every execution of e.g. the rent overlap
+ * check is counted together whatever its parameters. Statements slower than the threshold are logged with
+ * their fingerprint and the manager method that issued them.
+ *
+ * Installed by {@link DbcpConnectionProvider} when hibernate.slow_query_log.threshold_ms is set,
+ * the aggregates are available from {@link HibernateSessionFactory#getQueryStatistics()}.
+ * Execution time is measured until the driver returns, rows are counted while the result set is read
+ * by a {@link CountingResultSet}, which adds no reflection to reading rows.
+ * Executions inside a {@link Tracing} span are also recorded as child spans.
+ */
+public final class SlowQueryLog {
+
+    public static final String THRESHOLD = "hibernate.slow_query_log.threshold_ms";
+
+    /** Number of latest executions per fingerprint the percentiles are computed from. */
+    static final int WINDOW = 1024;
+    private static final int MAX_CACHED_STATEMENTS = 10_000;
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Pattern COMMENTS = Pattern.compile("/\\*.*?\\*/|--[^\\n]*", Pattern.DOTALL);
+    private static final Pattern STRINGS = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBERS = Pattern.compile("(?<![\\w$])-?\\d+(?:\\.\\d+)?(?![\\w$])");
+    private static final Pattern IN_LISTS = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern VALUES_LISTS = Pattern.compile("(?i)\\bvalues\\s*(\\([^()]*\\))(?:\\s*,\\s*\\([^()]*\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long thresholdNanos;
+    private final ConcurrentMap<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> fingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * @param thresholdMillis statements running longer than this are logged
+     */
+    public SlowQueryLog(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("Slow query threshold can't be negative");
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    /**
+     * Wraps a connection so that the statements created by it are timed.
+     */
+    public Connection wrap(Connection connection) {
+        return filter(Connection.class, connection, (method, args, result) -> {
+            if (result instanceof Statement statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                return wrapStatement(statement, sql);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Get the aggregates of every fingerprint, the statements that took the most time in total first.
+     */
+    public List<QueryStatistics> getStatistics() {
+        List<QueryStatistics> statistics = new ArrayList<>();
+        aggregates.forEach((fingerprint, aggregate) -> statistics.add(aggregate.snapshot(fingerprint)));
+        statistics.sort(Comparator.comparingLong(QueryStatistics::totalNanos).reversed());
+        return statistics;
+    }
+
+    public void reset() {
+        aggregates.clear();
+    }
+
+    /**
+     * Normalizes a statement so that executions differing only in literals, IN list lengths,
+     * multi-row VALUES lists, comments or whitespace share a fingerprint.
+     */
+    static String fingerprint(String sql) {
+        String normalized = COMMENTS.matcher(sql).replaceAll(" ");
+        normalized = STRINGS.matcher(normalized).replaceAll("?");
+        normalized = NUMBERS.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase();
+        normalized = IN_LISTS.matcher(normalized).replaceAll("in (...)");
+        return VALUES_LISTS.matcher(normalized).replaceAll("values $1, ...");
+    }
+
+    private Statement wrapStatement(Statement statement, String preparedSql) {
+        Class<? extends Statement> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        Aggregate prepared = preparedSql == null ? null : aggregate(preparedSql);
+        // The proxy itself, handed out by its result sets, and the aggregate of the SQL it executed last,
+        // which counts the rows of a later getResultSet(). A statement is used by one thread at a time.
+        Statement[] timed = new Statement[1];
+        Aggregate[] executed = {prepared};
+        timed[0] = proxy(type, statement, (method, args, target) -> {
+            if (!EXECUTE_METHODS.contains(method.getName())) {
+                return wrapResultSet(method.invoke(target, args), timed[0], executed[0]);
+            }
+            // Plain statements get their SQL with the execute call, prepared ones when they are created
+            boolean ownSql = args != null && args.length > 0 && args[0] instanceof String;
+            String sql = ownSql ? (String) args[0] : preparedSql;
+            Aggregate aggregate = ownSql ? aggregate(sql) : prepared;
+            executed[0] = aggregate;
+            long start = System.nanoTime();
+            Object result = method.invoke(target, args);
+            long elapsed = System.nanoTime() - start;
+            if (aggregate != null) {
+                long rows = updatedRows(result);
+                aggregate.record(elapsed, rows);
+                if (Tracing.isRecording()) {
+                    Map<String, Object> attributes = new LinkedHashMap<>();
+                    attributes.put("db.statement", fingerprintOf(sql));
+                    if (!(result instanceof ResultSet)) {
+                        attributes.put("db.rows", rows);
+                    }
+                    Tracing.record("sql", start, start + elapsed, attributes);
+                }
+                if (elapsed > thresholdNanos) {
+                    logger.log(Level.WARNING, "Slow SQL " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms in "
+                            + caller() + ": " + fingerprintOf(sql));
+                }
+            }
+            return wrapResultSet(result, timed[0], aggregate);
+        });
+        return timed[0];
+    }
+
+    private Object wrapResultSet(Object result, Statement statement, Aggregate aggregate) {
+        if (!(result instanceof ResultSet resultSet) || aggregate == null) {
+            return result;
+        }
+        // Rows are read in the hot loop of every query, count them without a reflective proxy
+        return new CountingResultSet(resultSet, statement, aggregate.rows);
+    }
+
+    private Aggregate aggregate(String sql) {
+        return sql == null ? null : aggregates.computeIfAbsent(fingerprintOf(sql), fingerprint -> new Aggregate());
+    }
+
+    private String fingerprintOf(String sql) {
+        // Hibernate issues the same few statements over and over, normalize each text once
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = fingerprint(sql);
+            if (fingerprints.size() < MAX_CACHED_STATEMENTS) {
+                fingerprints.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    private static long updatedRows(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(0, count);
+        }
+        if (result instanceof Long count) {
+            return Math.max(0, count);
+        }
+        if (result instanceof int[] counts) {
+            return Arrays.stream(counts).filter(count -> count > 0).sum();
+        }
+        if (result instanceof long[] counts) {
+            return Arrays.stream(counts).filter(count -> count > 0).sum();
+        }
+        return 0;
+    }
+
+    /**
+     * Get the manager method that issued the statement, or the first application frame when the statement
+     * was not issued by a manager, e.g. the flush at the end of a unit of work.
+     */
+    private static String caller() {
+        return StackWalker.getInstance().walk(frames -> {
+            List<StackWalker.StackFrame> application = frames
+                    .filter(frame -> frame.getClassName().startsWith("cz.muni.fi.pv168.")
+                            && !frame.getClassName().equals(SlowQueryLog.class.getName())
+                            && !frame.getClassName().startsWith(SlowQueryLog.class.getName() + "$")
+                            && !frame.getClassName().equals(DbcpConnectionProvider.class.getName()))
+                    .toList();
+            return application.stream()
+                    .filter(frame -> frame.getClassName().endsWith("ManagerImplementation"))
+                    .findFirst()
+                    .or(() -> application.stream().findFirst())
+                    .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                            + "." + frame.getMethodName())
+                    .orElse("unknown caller");
+        });
+    }
+
+    @FunctionalInterface
+    private interface Interceptor {
+        Object invoke(Method method, Object[] args, Object target) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface ResultFilter {
+        Object apply(Method method, Object[] args, Object result) throws Throwable;
+    }
+
+    private static <T> T filter(Class<T> type, Object target, ResultFilter filter) {
+        return proxy(type, target, (method, args, delegate) -> filter.apply(method, args, method.invoke(delegate, args)));
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, Interceptor interceptor) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    if (method.getParameterCount() == 1 && method.getParameterTypes()[0] == Object.class) {
+                        return proxy == args[0];
+                    }
+                    break;
+                case "hashCode":
+                    if (method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return interceptor.invoke(method, args, target);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }));
+    }
+
+    /**
+     * Counters of one fingerprint. The latest {@link #WINDOW} execution times are kept for the percentiles.
+     */
+    private static final class Aggregate {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final long[] window = new long[WINDOW];
+        private long recorded;
+        private long maxNanos;
+
+        private void record(long nanos, long updatedRows) {
+            count.increment();
+            totalNanos.add(nanos);
+            rows.add(updatedRows);
+            synchronized (this) {
+                window[(int) (recorded++ % WINDOW)] = nanos;
+                maxNanos = Math.max(maxNanos, nanos);
+            }
+        }
+
+        private QueryStatistics snapshot(String fingerprint) {
+            long[] latest;
+            long max;
+            synchronized (this) {
+                latest = Arrays.copyOf(window, (int) Math.min(recorded, WINDOW));
+                max = maxNanos;
+            }
+            Arrays.sort(latest);
+            return new QueryStatistics(fingerprint, count.sum(), rows.sum(), totalNanos.sum(),
+                    percentile(latest, 0.50), percentile(latest, 0.99), max);
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.ceil(quantile * sorted.length) - 1];
+        }
+    }
+
+    public static final Logger logger = Logger.getLogger(SlowQueryLog.class.getName());
+}
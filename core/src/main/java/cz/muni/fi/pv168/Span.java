@@ -0,0 +1,136 @@
+package cz.muni.fi.pv168;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One timed operation of a trace, see {@link Tracing}. A span opened with {@link Tracing#startSpan(String)}
+ * is the parent of every span started on the same thread until it is closed.
+ */
+public final class Span implements AutoCloseable {
+
+    /** Span returned while tracing is disabled, closing it does nothing. */
+    static final Span NOOP = new Span(null, null, "noop", 0L, Instant.EPOCH);
+
+    private final Tracing tracing;
+    private final Span parent;
+    private final String traceId;
+    private final String spanId;
+    private final String name;
+    private final String thread;
+    private final long startNanos;
+    private final Instant start;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private long durationNanos = -1;
+    private String error;
+
+    Span(Tracing tracing, Span parent, String name, long startNanos, Instant start) {
+        this.tracing = tracing;
+        this.parent = parent;
+        this.traceId = parent != null ? parent.traceId : randomId(2);
+        this.spanId = randomId(1);
+        this.name = name;
+        this.thread = Thread.currentThread().getName();
+        this.startNanos = startNanos;
+        this.start = start;
+    }
+
+    public String traceId() {
+        return traceId;
+    }
+
+    public String spanId() {
+        return spanId;
+    }
+
+    /**
+     * @return id of the enclosing span, or null for the root span of a trace
+     */
+    public String parentSpanId() {
+        return parent == null ? null : parent.spanId;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String thread() {
+        return thread;
+    }
+
+    public Instant start() {
+        return start;
+    }
+
+    /**
+     * @return duration of the span, or -1 while the span is open
+     */
+    public long durationNanos() {
+        return durationNanos;
+    }
+
+    public Map<String, Object> attributes() {
+        return Collections.unmodifiableMap(attributes);
+    }
+
+    /**
+     * @return exception type and message the span failed with, or null
+     */
+    public String error() {
+        return error;
+    }
+
+    public Span attribute(String key, Object value) {
+        if (this != NOOP) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    public Span error(Throwable throwable) {
+        if (this != NOOP) {
+            error = throwable.getClass().getSimpleName() + (throwable.getMessage() == null ? "" : ": " + throwable.getMessage());
+        }
+        return this;
+    }
+
+    Tracing tracing() {
+        return tracing;
+    }
+
+    Span parent() {
+        return parent;
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    void end(long endNanos) {
+        durationNanos = endNanos - startNanos;
+        tracing.export(this);
+    }
+
+    /**
+     * Ends the span and makes its parent the current span of the thread again.
+     */
+    @Override
+    public void close() {
+        if (this == NOOP || durationNanos >= 0) {
+            return;
+        }
+        tracing.finish(this);
+    }
+
+    private static String randomId(int longs) {
+        StringBuilder id = new StringBuilder(16 * longs);
+        for (int i = 0; i < longs; i++) {
+            String part = Long.toHexString(ThreadLocalRandom.current().nextLong());
+            id.append("0".repeat(16 - part.length())).append(part);
+        }
+        return id.toString();
+    }
+}
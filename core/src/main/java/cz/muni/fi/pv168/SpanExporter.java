@@ -0,0 +1,11 @@
+package cz.muni.fi.pv168;
+
+/**
+ * Receives every span of {@link Tracing} once it has ended. Child spans end, and are exported, before their parent.
+ * Exporters are called on the thread that ended the span and must be thread safe.
+ */
+@FunctionalInterface
+public interface SpanExporter {
+
+    public void export(Span span);
+}
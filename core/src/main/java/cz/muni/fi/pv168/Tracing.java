@@ -0,0 +1,195 @@
+package cz.muni.fi.pv168;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lightweight trace spans of manager calls and of the work they cause, nested per thread:
+ *
+ * <pre>
+ * RentManager.rentCarToCustomer
+ *  ├─ connection.acquire   time spent waiting for a pooled connection
+ *  ├─ sql                  one span per statement execution, with its fingerprint and updated rows
+ *  └─ sql
+ * </pre>
+ *
+ * Managers are traced by wrapping them, like {@link ManagerMetrics}:
+ *
+ * <pre>
+ * RentManager rentManager = Tracing.instrument(RentManager.class, new RentManagerImplementation());
+ * </pre>
+ *
+ * A {@link RentalUnitOfWork} is a span of its own, so the manager calls it runs share one trace.
+ * Tracing is enabled by the carrental.tracing.file system property, the spans are appended to that file
+ * by {@link JsonLinesSpanExporter}. Statement spans need the JDBC wrapper of {@link SlowQueryLog}, installed
+ * when hibernate.slow_query_log.threshold_ms is set. Connection waits and statements run outside a span are
+ * not traced. Without the property managers are returned unwrapped and spans are no-ops.
+ */
+public final class Tracing {
+
+    /** System property with the JSON-lines file to export spans to, tracing is disabled without it. */
+    public static final String FILE = "carrental.tracing.file";
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static final Tracing INSTANCE = create();
+
+    private final SpanExporter exporter;
+
+    /**
+     * @param exporter receives the ended spans, null disables tracing
+     */
+    Tracing(SpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Get the tracing configured by the carrental.tracing.file system property.
+     */
+    public static Tracing getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Wraps a manager so that every call of the manager interface is a span.
+     *
+     * @param type manager interface, e.g. RentManager.class
+     * @param manager the manager to trace
+     * @return manager tracing its calls, or the given manager when tracing is disabled
+     */
+    public static <T> T instrument(Class<T> type, T manager) {
+        return INSTANCE.wrap(type, manager);
+    }
+
+    /**
+     * Starts a span nested in the span open on the current thread, or a new trace if there is none.
+     * The span must be closed on the same thread, best with try-with-resources.
+     *
+     * @param name operation name
+     * @return the started span, a no-op span when tracing is disabled
+     */
+    public static Span startSpan(String name) {
+        Span parent = CURRENT.get();
+        return parent != null ? parent.tracing().start(name) : INSTANCE.start(name);
+    }
+
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    <T> T wrap(Class<T> type, T manager) {
+        if (null == manager) {
+            throw new IllegalArgumentException("Can't instrument null manager");
+        }
+        if (!isEnabled()) {
+            return manager;
+        }
+        String prefix = type.getSimpleName() + ".";
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> invoke(prefix, manager, proxy, method, args)));
+    }
+
+    Span start(String name) {
+        if (!isEnabled()) {
+            return Span.NOOP;
+        }
+        Span span = new Span(this, CURRENT.get(), name, System.nanoTime(), Instant.now());
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Records an operation that already ended as a child of the span open on the current thread.
+     * Does nothing when no span is open, e.g. for the statements Hibernate runs at startup.
+     *
+     * @param name operation name
+     * @param startNanos start of the operation as returned by System.nanoTime()
+     * @param endNanos end of the operation as returned by System.nanoTime()
+     * @param attributes attributes of the operation
+     */
+    static void record(String name, long startNanos, long endNanos, Map<String, Object> attributes) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return;
+        }
+        Instant start = parent.start().plusNanos(startNanos - parent.startNanos());
+        Span span = new Span(parent.tracing(), parent, name, startNanos, start);
+        attributes.forEach(span::attribute);
+        span.end(endNanos);
+    }
+
+    static boolean isRecording() {
+        return CURRENT.get() != null;
+    }
+
+    void finish(Span span) {
+        if (CURRENT.get() == span) {
+            if (span.parent() == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(span.parent());
+            }
+        }
+        span.end(System.nanoTime());
+    }
+
+    void export(Span span) {
+        try {
+            exporter.export(span);
+        } catch (RuntimeException ex) {
+            // A failing exporter must not fail the traced operation
+            logger.log(Level.WARNING, "Span " + span.name() + " was not exported", ex);
+        }
+    }
+
+    private Object invoke(String prefix, Object manager, Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return method.invoke(manager, args);
+            }
+        }
+        try (Span span = start(prefix + method.getName())) {
+            try {
+                return method.invoke(manager, args);
+            } catch (InvocationTargetException ex) {
+                span.error(ex.getCause());
+                throw ex.getCause();
+            }
+        }
+    }
+
+    private static Tracing create() {
+        String file = System.getProperty(FILE);
+        if (file == null || file.isBlank()) {
+            return new Tracing(null);
+        }
+        try {
+            JsonLinesSpanExporter exporter = new JsonLinesSpanExporter(Path.of(file.trim()));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    exporter.close();
+                } catch (IOException ex) {
+                    Logger.getLogger(Tracing.class.getName()).log(Level.WARNING, "Error when closing " + file, ex);
+                }
+            }, "tracing-exporter-shutdown"));
+            return new Tracing(exporter);
+        } catch (IOException ex) {
+            // Runs during class initialization, before the logger field below is set
+            Logger.getLogger(Tracing.class.getName()).log(Level.WARNING, "Tracing disabled, can't open " + file, ex);
+            return new Tracing(null);
+        }
+    }
+
+    public static final Logger logger = Logger.getLogger(Tracing.class.getName());
+}
@@ -0,0 +1,107 @@
+package cz.muni.fi.pv168;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.hibernate.cfg.Configuration;
+
+/**
+ * Runtime tuning profiles for the JDBC, batching and connection pool settings.
+ * A profile is a properties file in cz/muni/fi/pv168/profiles with Hibernate and hibernate.dbcp.* settings,
+ * applied on top of hibernate.cfg.xml when the SessionFactory is built:
+ * <ul>
+ *   <li>oltp - the default, short transactions of the rental counter</li>
+ *   <li>bulk-load - nightly imports, large JDBC batches and a few long-held connections</li>
+ *   <li>reporting - long read-only scans with large fetch sizes</li>
+ * </ul>
+ *
+ * The profile is selected with -Dhibernate.tuning.profile=bulk-load, or the same property in hibernate.cfg.xml.
+ * Settings are applied in this order, later ones win: hibernate.cfg.xml, the profile, the file named by
+ * -Dhibernate.tuning.file, and hibernate.* system properties such as -Dhibernate.jdbc.batch_size=200.
+ */
+public final class TuningProfiles {
+
+    public static final String PROFILE = "hibernate.tuning.profile";
+    public static final String FILE = "hibernate.tuning.file";
+    public static final String DEFAULT_PROFILE = "oltp";
+    public static final List<String> PROFILES = List.of("oltp", "bulk-load", "reporting");
+
+    private static final String LOCATION = "/cz/muni/fi/pv168/profiles/";
+    private static final String HIBERNATE_PREFIX = "hibernate.";
+
+    private TuningProfiles() {
+    }
+
+    /**
+     * Applies the selected profile, the external tuning file and hibernate.* system properties to the configuration.
+     *
+     * @param configuration configuration already loaded from hibernate.cfg.xml
+     * @return name of the applied profile
+     * @throws IllegalArgumentException when the profile does not exist or the tuning file can't be read
+     */
+    public static String apply(Configuration configuration) throws IllegalArgumentException {
+        String profile = System.getProperty(PROFILE, configuration.getProperty(PROFILE));
+        if (profile == null || profile.isBlank()) {
+            profile = DEFAULT_PROFILE;
+        }
+        profile = profile.trim();
+        configuration.addProperties(load(profile));
+
+        String file = System.getProperty(FILE, configuration.getProperty(FILE));
+        if (file != null && !file.isBlank()) {
+            configuration.addProperties(loadFile(Path.of(file.trim())));
+        }
+
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(HIBERNATE_PREFIX)) {
+                configuration.setProperty(name, System.getProperty(name));
+            }
+        }
+        configuration.setProperty(PROFILE, profile);
+        logger.log(Level.INFO, "Tuning profile " + profile + " applied"
+                + (file == null || file.isBlank() ? "" : " with overrides from " + file));
+        return profile;
+    }
+
+    /**
+     * Get the settings of a profile shipped with the application.
+     *
+     * @param profile one of {@link #PROFILES}
+     * @return the settings of the profile
+     * @throws IllegalArgumentException when there is no such profile
+     */
+    public static Properties load(String profile) throws IllegalArgumentException {
+        if (!PROFILES.contains(profile)) {
+            throw new IllegalArgumentException("Unknown tuning profile " + profile + ", available profiles are " + PROFILES);
+        }
+        Properties settings = new Properties();
+        try (InputStream in = TuningProfiles.class.getResourceAsStream(LOCATION + profile + ".properties")) {
+            if (in == null) {
+                throw new IllegalStateException("Tuning profile " + profile + " is missing from the classpath");
+            }
+            settings.load(in);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Can't read tuning profile " + profile, ex);
+        }
+        return settings;
+    }
+
+    private static Properties loadFile(Path file) {
+        Properties settings = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            settings.load(reader);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Can't read tuning file " + file, ex);
+        }
+        return settings;
+    }
+
+    public static final Logger logger = Logger.getLogger(TuningProfiles.class.getName());
+}
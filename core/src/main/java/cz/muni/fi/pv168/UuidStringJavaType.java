@@ -0,0 +1,57 @@
+package cz.muni.fi.pv168;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.StringJavaType;
+import org.hibernate.type.descriptor.jdbc.JdbcType;
+import org.hibernate.type.descriptor.jdbc.JdbcTypeIndicators;
+import org.hibernate.type.descriptor.jdbc.UUIDJdbcType;
+
+/**
+ * Maps the String IDs of the entities to native 16 byte uuid columns.
+ * The managers keep working with the canonical String form, the value is converted to
+ * {@link UUID} only when it is bound to or read from a statement.
+ *
+ * A value that is not a UUID can never be stored, so it is bound as the nil UUID and
+ * a lookup by such an ID simply finds nothing.
+ */
+public class UuidStringJavaType extends StringJavaType {
+
+    private static final Pattern CANONICAL = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final UUID NIL = new UUID(0L, 0L);
+
+    /**
+     * Checks whether the ID is a lower case canonical UUID, which reads back unchanged once stored.
+     */
+    public static boolean isValid(String id) {
+        if (id == null || !CANONICAL.matcher(id).matches()) {
+            return false;
+        }
+        UUID uuid = UUID.fromString(id);
+        return !NIL.equals(uuid) && uuid.toString().equals(id);
+    }
+
+    @Override
+    public JdbcType getRecommendedJdbcType(JdbcTypeIndicators indicators) {
+        return UUIDJdbcType.INSTANCE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <X> X unwrap(String value, Class<X> type, WrapperOptions options) {
+        if (value != null && UUID.class.isAssignableFrom(type)) {
+            return (X) (CANONICAL.matcher(value).matches() ? UUID.fromString(value) : NIL);
+        }
+        return super.unwrap(value, type, options);
+    }
+
+    @Override
+    public <X> String wrap(X value, WrapperOptions options) {
+        if (value instanceof UUID uuid) {
+            return uuid.toString();
+        }
+        return super.wrap(value, options);
+    }
+}
@@ -0,0 +1,57 @@
+package cz.muni.fi.pv168;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generator of time-ordered version 7 UUIDs as described in RFC 9562.
+ * The first 48 bits hold the Unix time in milliseconds, so new keys are appended to the right
+ * edge of the primary key index instead of being scattered across it like random version 4 keys.
+ *
+ * Within one millisecond the 12 bits of rand_a and the upper 30 bits of rand_b form a counter
+ * that starts at a random value and is incremented for every generated UUID, the remaining 32 bits
+ * are random. Generated UUIDs are therefore strictly increasing in their canonical String form,
+ * also across concurrent callers and when the system clock steps back.
+ */
+public final class UuidV7 {
+
+    private static final int COUNTER_BITS = 42;
+    private static final long COUNTER_MAX = (1L << COUNTER_BITS) - 1;
+    private static final long LOW_COUNTER_MASK = (1L << 30) - 1;
+
+    private static long lastMillis;
+    private static long counter;
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        long millis;
+        long sequence;
+        synchronized (UuidV7.class) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                counter = seed();
+            } else if (++counter > COUNTER_MAX) {
+                // Counter exhausted, continue in the next millisecond ahead of the clock
+                lastMillis++;
+                counter = seed();
+            }
+            millis = lastMillis;
+            sequence = counter;
+        }
+
+        long mostSigBits = (millis << 16) | 0x7000L | (sequence >>> 30);
+        long leastSigBits = 0x8000000000000000L | ((sequence & LOW_COUNTER_MASK) << 32)
+                | (ThreadLocalRandom.current().nextLong() & 0xFFFFFFFFL);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Random counter start with the top bit clear, which leaves room for at least 2^41 increments.
+     */
+    private static long seed() {
+        return ThreadLocalRandom.current().nextLong() & (COUNTER_MAX >>> 1);
+    }
+}
@@ -1,9 +1,9 @@
--- PostgreSQL initialization script for Car Rental Database
--- Creates the schema and initializes tables with UUID IDs
+-- Tables and indexes of the car rental database with native UUID keys.
+-- A database created by an earlier postgres-init.sql with VARCHAR(36) keys is converted
+-- to this version by postgres-migrate-uuid-keys.sql in the project root.
 
--- Create CUSTOMERS table
 CREATE TABLE CUSTOMERS (
-    ID VARCHAR(36) NOT NULL PRIMARY KEY,
+    ID UUID NOT NULL PRIMARY KEY,
     FIRST_NAME VARCHAR(50),
     LAST_NAME VARCHAR(50),
     ADDRESS VARCHAR(100),
@@ -12,9 +12,8 @@ CREATE TABLE CUSTOMERS (
     STATUS BOOLEAN
 );
 
--- Create CARS table
 CREATE TABLE CARS (
-    ID VARCHAR(36) NOT NULL PRIMARY KEY,
+    ID UUID NOT NULL PRIMARY KEY,
     COLOR VARCHAR(32),
     MODEL VARCHAR(32),
     PAYMENT DECIMAL(10,2),
@@ -22,16 +21,14 @@ CREATE TABLE CARS (
     STATUS BOOLEAN
 );
 
--- Create RENTS table
 CREATE TABLE RENTS (
-    ID VARCHAR(36) NOT NULL PRIMARY KEY,
-    CAR VARCHAR(36) NOT NULL REFERENCES CARS(ID) ON DELETE CASCADE,
-    CUSTOMER VARCHAR(36) NOT NULL REFERENCES CUSTOMERS(ID) ON DELETE CASCADE,
+    ID UUID NOT NULL PRIMARY KEY,
+    CAR UUID NOT NULL REFERENCES CARS(ID) ON DELETE CASCADE,
+    CUSTOMER UUID NOT NULL REFERENCES CUSTOMERS(ID) ON DELETE CASCADE,
     RENT_DATE DATE,
     DUE_DATE DATE
 );
 
--- Create indexes for performance
 CREATE INDEX idx_customer_name ON CUSTOMERS(LAST_NAME, FIRST_NAME);
 CREATE INDEX idx_car_license ON CARS(LICENSE_PLATE);
 CREATE INDEX idx_rent_car ON RENTS(CAR);
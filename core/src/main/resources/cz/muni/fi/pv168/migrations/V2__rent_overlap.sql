@@ -0,0 +1,12 @@
+-- Rent period column and the exclusion constraint that rejects overlapping rents of the same car.
+-- The constraint cannot be added while overlapping rents are stored, find them with:
+--   SELECT a.ID, b.ID FROM RENTS a JOIN RENTS b ON a.CAR = b.CAR AND a.ID < b.ID
+--   WHERE a.RENT_DATE <= b.DUE_DATE AND b.RENT_DATE <= a.DUE_DATE;
+
+-- btree_gist lets the exclusion constraint compare CAR with equality
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+ALTER TABLE RENTS
+    ADD COLUMN PERIOD DATERANGE GENERATED ALWAYS AS (DATERANGE(RENT_DATE, DUE_DATE, '[]')) STORED;
+ALTER TABLE RENTS
+    ADD CONSTRAINT RENTS_NO_OVERLAP EXCLUDE USING GIST (CAR WITH =, PERIOD WITH &&);
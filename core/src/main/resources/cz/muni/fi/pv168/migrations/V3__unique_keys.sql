@@ -0,0 +1,12 @@
+-- Unique constraints on license plates and driver's licenses, the managers rely on them to reject duplicates.
+-- The constraints cannot be added while duplicates are stored, find them with:
+--   SELECT LICENSE_PLATE, count(*) FROM CARS GROUP BY LICENSE_PLATE HAVING count(*) > 1;
+--   SELECT DRIVERS_LICENSE, count(*) FROM CUSTOMERS GROUP BY DRIVERS_LICENSE HAVING count(*) > 1;
+
+-- The unique constraint creates its own index on the license plate
+DROP INDEX IF EXISTS idx_car_license;
+
+ALTER TABLE CARS
+    ADD CONSTRAINT CARS_LICENSE_PLATE_KEY UNIQUE (LICENSE_PLATE);
+ALTER TABLE CUSTOMERS
+    ADD CONSTRAINT CUSTOMERS_DRIVERS_LICENSE_KEY UNIQUE (DRIVERS_LICENSE);
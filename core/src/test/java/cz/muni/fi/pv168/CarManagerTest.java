@@ -3,11 +3,21 @@ package cz.muni.fi.pv168;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedQuery;
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.stat.Statistics;
 
 @DisplayName("Car Manager Tests")
 public class CarManagerTest {
@@ -55,8 +65,15 @@ public class CarManagerTest {
             Car car1 = newCar("Black", "0B6 6835", "Škoda", 200.0);
             Car car2 = newCar("Red", "0B6 6835", "BMW", 500.0);
 
+            Statistics statistics = HibernateSessionFactory.getSessionFactory().getStatistics();
+            long statementsBefore = statistics.getPrepareStatementCount();
             manager.addCar(car1);
-            assertThrows(IllegalArgumentException.class, () -> manager.addCar(car2));
+            // The unique constraint checks the plate, no query is needed before the INSERT
+            assertEquals(1, statistics.getPrepareStatementCount() - statementsBefore);
+
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> manager.addCar(car2));
+            assertEquals("Car with duplicate license plate", ex.getMessage());
+            assertNull(manager.findCarByID(car2.uuid()));
         }
 
         @Test
@@ -64,6 +81,7 @@ public class CarManagerTest {
         public void addCarWithWrongAttributes() {
             assertThrows(IllegalArgumentException.class, () -> manager.addCar(null));
             assertThrows(IllegalArgumentException.class, () -> manager.addCar(newCar("Black", "0B6 6835", "Škoda", 200.0).withUuid(null)));
+            assertThrows(IllegalArgumentException.class, () -> manager.addCar(newCar("Black", "0B6 6835", "Škoda", 200.0).withUuid("not-a-uuid")));
             
             // Null color
             assertThrows(IllegalArgumentException.class, () -> manager.addCar(new Car(UUID.randomUUID().toString(), "Škoda", null, true, 200.0, "0B6 6835")));
@@ -80,6 +98,36 @@ public class CarManagerTest {
     @DisplayName("Car Retrieval Tests")
     class RetrievalTests {
 
+        @Test
+        @DisplayName("Should fan out lookups through the async facade")
+        public void findCarsAsync() {
+            List<Car> cars = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                cars.add(newCar("Black", "ASYNC " + i, "Škoda", 200.0));
+            }
+            manager.addCars(cars);
+
+            try (DatabaseExecutor executor = new DatabaseExecutor(3)) {
+                AsyncCarManager asyncManager = new AsyncCarManager(manager, executor);
+                List<CompletableFuture<Car>> lookups = cars.stream().map(car -> asyncManager.findCarByID(car.uuid())).toList();
+                CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0])).join();
+                for (int i = 0; i < cars.size(); i++) {
+                    assertCarDeepEquals(cars.get(i), lookups.get(i).join());
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should leave pooled connections writable after read-only reads")
+        public void readOnlyReadsReleaseConnections() {
+            manager.addCar(newCar("Black", "0B6 6835", "Škoda", 200.0));
+            for (int i = 0; i < HibernateSessionFactory.getConnectionPoolSize() + 1; i++) {
+                assertEquals(1, manager.getAllCars().size());
+            }
+            manager.addCar(newCar("Red", "7B4 0044", "BMW", 500.0));
+            assertEquals(2, manager.getAllCars().size());
+        }
+
         @Test
         @DisplayName("Should find existing car by ID")
         public void findCarByID() {
@@ -139,10 +187,129 @@ public class CarManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("Car Streaming Tests")
+    class StreamingTests {
+
+        @Test
+        @DisplayName("Should stream all cars")
+        public void streamAllCars() {
+            Car car1 = newCar("Black", "0B6 6835", "Škoda", 200.0);
+            Car car2 = newCar("Red", "7B4 0044", "BMW", 500.0);
+            manager.addCars(Arrays.asList(car1, car2));
+
+            try (Stream<Car> cars = manager.streamAllCars()) {
+                assertCarDeepEquals(Arrays.asList(car1, car2), cars.toList());
+            }
+        }
+
+        @Test
+        @DisplayName("Should page through cars by ID")
+        public void getCarsAfter() {
+            List<Car> expected = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                expected.add(newCar("Black", "PLATE-" + i, "Škoda", 200.0));
+            }
+            manager.addCars(expected);
+
+            List<Car> actual = new ArrayList<>();
+            String lastId = null;
+            List<Car> page;
+            while (!(page = manager.getCarsAfter(lastId, 2)).isEmpty()) {
+                assertTrue(page.size() <= 2);
+                actual.addAll(page);
+                lastId = page.get(page.size() - 1).uuid();
+            }
+
+            assertCarDeepEquals(expected, actual);
+            assertThrows(IllegalArgumentException.class, () -> manager.getCarsAfter(null, 0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Car Cache Tests")
+    class CacheTests {
+
+        @Test
+        @DisplayName("Should serve repeated lookups from the second-level cache")
+        public void findCarByIDHitsCache() {
+            Car car = newCar("Black", "0B6 6835", "Škoda", 200.0);
+            manager.addCar(car);
+            manager.findCarByID(car.uuid());
+
+            long hitsBefore = HibernateSessionFactory.getCacheStatistics().entityHits();
+            manager.findCarByID(car.uuid());
+            assertTrue(HibernateSessionFactory.getCacheStatistics().entityHits() > hitsBefore);
+        }
+
+        @Test
+        @DisplayName("Should invalidate cached available cars on write")
+        public void availableCarsCacheInvalidatedOnWrite() {
+            Car car = newCar("Black", "0B6 6835", "Škoda", 200.0);
+            manager.addCar(car);
+            assertEquals(1, manager.getAvailableCars().size());
+
+            long hitsBefore = HibernateSessionFactory.getCacheStatistics().queryHits();
+            assertEquals(1, manager.getAvailableCars().size());
+            assertTrue(HibernateSessionFactory.getCacheStatistics().queryHits() > hitsBefore);
+
+            manager.updateCarInfo(car.withStatus(false));
+            assertTrue(manager.getAvailableCars().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should reuse the plan of a named query")
+        public void namedQueryPlanReused() {
+            manager.addCar(newCar("Black", "0B6 6835", "Škoda", 200.0));
+            manager.getAllCars();
+
+            long planHitsBefore = HibernateSessionFactory.getCacheStatistics().queryPlanHits();
+            assertEquals(1, manager.getAllCars().size());
+            assertTrue(HibernateSessionFactory.getCacheStatistics().queryPlanHits() > planHitsBefore);
+        }
+
+        @Test
+        @DisplayName("Should reject a malformed named query when the SessionFactory is built")
+        public void malformedNamedQueryFailsBootstrap() {
+            Configuration configuration = new Configuration().configure("hibernate.cfg.xml");
+            configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "none");
+            // The failed bootstrap must not close the JCache manager shared with the application SessionFactory
+            configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+            configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, "false");
+            configuration.addAnnotatedClass(MisspelledQueryCar.class);
+            assertThrows(HibernateException.class, () -> configuration.buildSessionFactory().close());
+        }
+    }
+
     @Nested
     @DisplayName("Car Update Tests")
     class UpdateTests {
 
+        @Test
+        @DisplayName("Should set only the availability of single and multiple cars")
+        public void setCarAvailability() {
+            Car car1 = newCar("Black", "0B6 6835", "Škoda", 200.0);
+            Car car2 = newCar("Red", "7B4 0044", "BMW", 500.0);
+            manager.addCars(Arrays.asList(car1, car2));
+
+            manager.findCarByID(car2.uuid());
+            manager.setCarAvailability(car1.uuid(), false);
+            // A single car is updated through the session, the other cached cars stay cached
+            assertTrue(HibernateSessionFactory.getSessionFactory().getCache().containsEntity(Car.class, car2.uuid()));
+            assertCarDeepEquals(car1.withStatus(false), manager.findCarByID(car1.uuid()));
+            assertEquals(Arrays.asList(car2), manager.getAvailableCars());
+
+            String missingID = UUID.randomUUID().toString();
+            assertEquals(1, manager.setCarsAvailability(Arrays.asList(car1.uuid(), missingID), true));
+            assertEquals(2, manager.setCarsAvailability(Arrays.asList(car1.uuid(), car2.uuid()), false));
+            assertTrue(manager.getAvailableCars().isEmpty());
+            assertEquals(0, manager.setCarsAvailability(Collections.emptyList(), true));
+
+            assertThrows(TransactionException.class, () -> manager.setCarAvailability(missingID, true));
+            assertThrows(IllegalArgumentException.class, () -> manager.setCarAvailability(null, true));
+            assertThrows(IllegalArgumentException.class, () -> manager.setCarsAvailability(Arrays.asList(car1.uuid(), null), true));
+        }
+
         @Test
         @DisplayName("Should successfully update car attributes")
         public void updateCarInfo() {
@@ -228,6 +395,65 @@ public class CarManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("Car Batch Tests")
+    class BatchTests {
+
+        @Test
+        @DisplayName("Should add valid cars and report rejected ones")
+        public void addCars() {
+            Car stored = newCar("Black", "0B6 6835", "Škoda", 200.0);
+            manager.addCar(stored);
+
+            Car car1 = newCar("Red", "7B4 0044", "BMW", 500.0);
+            Car car2 = newCar("White", "8B5 0983", "Volkswagen", 300.0);
+            Car takenPlate = newCar("Blue", "0B6 6835", "Audi", 400.0);
+            Car samePlateInBatch = newCar("Green", "7B4 0044", "Peugeot", 100.0);
+            Car negativePrice = newCar("Grey", "1B1 1111", "Fiat", -1.0);
+
+            BatchResult<Car> result = manager.addCars(Arrays.asList(car1, car2, takenPlate, samePlateInBatch, negativePrice));
+
+            assertCarDeepEquals(Arrays.asList(car1, car2), result.written());
+            assertEquals(3, result.rejected().size());
+            result.rejected().forEach(failure -> assertInstanceOf(IllegalArgumentException.class, failure.error()));
+            assertCarDeepEquals(Arrays.asList(stored, car1, car2), manager.getAllCars());
+        }
+
+        @Test
+        @DisplayName("Should update existing cars and report missing ones")
+        public void updateCars() {
+            Car car1 = newCar("Black", "0B6 6835", "Škoda", 200.0);
+            Car car2 = newCar("Red", "7B4 0044", "BMW", 500.0);
+            manager.addCars(Arrays.asList(car1, car2));
+
+            car1 = car1.withColor("White");
+            car2 = car2.withStatus(false);
+            Car missing = newCar("Blue", "3B6 8463", "Peugeot", 100.0);
+
+            BatchResult<Car> result = manager.updateCars(Arrays.asList(car1, car2, missing));
+
+            assertEquals(2, result.written().size());
+            assertEquals(1, result.rejected().size());
+            assertInstanceOf(TransactionException.class, result.rejected().get(0).error());
+            assertCarDeepEquals(car1, manager.findCarByID(car1.uuid()));
+            assertCarDeepEquals(car2, manager.findCarByID(car2.uuid()));
+        }
+
+        @Test
+        @DisplayName("Should remove cars in one batch")
+        public void removeCars() {
+            Car car1 = newCar("Black", "0B6 6835", "Škoda", 200.0);
+            Car car2 = newCar("Red", "7B4 0044", "BMW", 500.0);
+            manager.addCars(Arrays.asList(car1, car2));
+
+            BatchResult<Car> result = manager.removeCars(Arrays.asList(car1, car2, car1.withUuid("non-existent-id")));
+
+            assertEquals(2, result.written().size());
+            assertEquals(1, result.rejected().size());
+            assertTrue(manager.getAllCars().isEmpty());
+        }
+    }
+
     // Helpers
     public static Car newCar(String colour, String licensePlate, String model, double payment) {
         return Car.create(model, colour, true, payment, licensePlate);
@@ -253,4 +479,12 @@ public class CarManagerTest {
             assertCarDeepEquals(expectedSortedList.get(i), actualSortedList.get(i));
         }
     }
-}
\ No newline at end of file
+
+    @Entity
+    @NamedQuery(name = "MisspelledQueryCar.findAll", query = "FROM MisspelledQueryCar c WHERE c.licencePlate = :plate")
+    static class MisspelledQueryCar {
+        @Id
+        private String uuid;
+        private String licensePlate;
+    }
+}
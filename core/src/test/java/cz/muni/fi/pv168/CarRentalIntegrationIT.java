@@ -5,7 +5,6 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
-import java.sql.Date;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -76,8 +75,8 @@ public class CarRentalIntegrationIT {
         assertNotNull(customer.uuid());
         
         // 3. Rent Car to Customer
-        Date rentDate = Date.valueOf(LocalDate.now());
-        Date dueDate = Date.valueOf(LocalDate.now().plusDays(5));
+        LocalDate rentDate = LocalDate.now();
+        LocalDate dueDate = LocalDate.now().plusDays(5);
         
         rentManager.rentCarToCustomer(car, customer, rentDate, dueDate);
         
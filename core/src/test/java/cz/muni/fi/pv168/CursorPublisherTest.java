@@ -0,0 +1,128 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@DisplayName("Cursor Publisher Tests")
+public class CursorPublisherTest {
+
+    private AtomicInteger pulled;
+    private AtomicBoolean closed;
+    private CursorPublisher<Integer> publisher;
+
+    @BeforeEach
+    public void setUp() {
+        pulled = new AtomicInteger();
+        closed = new AtomicBoolean();
+        publisher = new CursorPublisher<>(() -> rows(10), CursorPublisher.VIRTUAL_THREADS);
+    }
+
+    @Test
+    @DisplayName("Should pull rows from the cursor only on demand")
+    public void respectsDemand() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        Thread.sleep(50);
+        assertEquals(0, pulled.get());
+
+        subscriber.subscription.request(3);
+        subscriber.awaitItems(3);
+        Thread.sleep(50);
+        assertEquals(List.of(0, 1, 2), subscriber.items);
+        // The iterator may look one row ahead to detect the end of the cursor
+        assertTrue(pulled.get() <= 4, "pulled " + pulled.get());
+        assertFalse(closed.get());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(10, subscriber.items.size());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    @DisplayName("Should close the cursor when the subscriber cancels")
+    public void cancelClosesCursor() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(2);
+        subscriber.awaitItems(2);
+        subscriber.subscription.cancel();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!closed.get() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(closed.get());
+        assertEquals(1, subscriber.completed.getCount());
+    }
+
+    @Test
+    @DisplayName("Should signal an error for a non-positive request and for a failing cursor")
+    public void errors() throws Exception {
+        RecordingSubscriber invalid = new RecordingSubscriber();
+        publisher.subscribe(invalid);
+        invalid.subscription.request(0);
+        assertTrue(invalid.failed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, invalid.error);
+
+        RecordingSubscriber failing = new RecordingSubscriber();
+        new CursorPublisher<Integer>(() -> {
+            throw new TransactionException("Error when streaming Rents from DB");
+        }, CursorPublisher.VIRTUAL_THREADS).subscribe(failing);
+        failing.subscription.request(1);
+        assertTrue(failing.failed.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(TransactionException.class, failing.error);
+    }
+
+    private Stream<Integer> rows(int count) {
+        return IntStream.range(0, count).boxed()
+                .peek(row -> pulled.incrementAndGet())
+                .onClose(() -> closed.set(true));
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<Integer> {
+        private final List<Integer> items = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            failed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        private void awaitItems(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (items.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+    }
+}
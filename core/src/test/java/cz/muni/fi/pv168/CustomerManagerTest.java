@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @DisplayName("Customer Manager Tests")
 public class CustomerManagerTest {
@@ -54,7 +55,8 @@ public class CustomerManagerTest {
             Customer customer2 = newCustomer("John", "Doe", "Praha", "1-23-45", "AK 373979");
 
             manager.addCustomer(customer1);
-            assertThrows(IllegalArgumentException.class, () -> manager.addCustomer(customer2));
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> manager.addCustomer(customer2));
+            assertEquals("Customer with duplicate driver's license", ex.getMessage());
         }
 
         @Test
@@ -126,10 +128,55 @@ public class CustomerManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("Customer Streaming Tests")
+    class StreamingTests {
+
+        @Test
+        @DisplayName("Should stream and page through customers")
+        public void testStreamAndPageCustomers() {
+            Customer customer1 = newCustomer("Vitalii", "Chepeliuk", "Komarov", "5-20-86", "AK 373979");
+            Customer customer2 = newCustomer("Juraj", "Kolchak", "Komarov", "5-34-86", "AK 372548");
+            Customer customer3 = newCustomer("Martin", "Jirman", "Lazhot", "5-25-87", "AK 251245");
+            List<Customer> expected = Arrays.asList(customer1, customer2, customer3);
+            manager.addCustomers(expected);
+
+            try (Stream<Customer> customers = manager.streamAllCustomers()) {
+                assertCustomerDeepEquals(expected, customers.toList());
+            }
+
+            List<Customer> firstPage = manager.getCustomersAfter(null, 2);
+            assertEquals(2, firstPage.size());
+            List<Customer> secondPage = manager.getCustomersAfter(firstPage.get(1).uuid(), 2);
+            assertEquals(1, secondPage.size());
+            assertTrue(manager.getCustomersAfter(secondPage.get(0).uuid(), 2).isEmpty());
+        }
+    }
+
     @Nested
     @DisplayName("Customer Update Tests")
     class UpdateTests {
 
+        @Test
+        @DisplayName("Should set only the activity of single and multiple customers")
+        public void setCustomerActive() {
+            Customer customer1 = newCustomer("Petr", "Adamek", "Brno", "4-35-47", "AK 125798");
+            Customer customer2 = newCustomer("Juraj", "Kolchak", "Komarov", "5-34-86", "AK 372548");
+            manager.addCustomers(Arrays.asList(customer1, customer2));
+
+            manager.findCustomerByID(customer2.uuid());
+            manager.setCustomerActive(customer1.uuid(), true);
+            assertTrue(HibernateSessionFactory.getSessionFactory().getCache().containsEntity(Customer.class, customer2.uuid()));
+            assertCustomerDeepEquals(customer1.withActive(true), manager.findCustomerByID(customer1.uuid()));
+            assertEquals(Arrays.asList(customer1.withActive(true)), manager.getActiveCustomers());
+
+            assertEquals(2, manager.setCustomersActive(Arrays.asList(customer1.uuid(), customer2.uuid()), true));
+            assertEquals(2, manager.getActiveCustomers().size());
+
+            assertThrows(TransactionException.class, () -> manager.setCustomerActive(UUID.randomUUID().toString(), false));
+            assertThrows(IllegalArgumentException.class, () -> manager.setCustomersActive(null, false));
+        }
+
         @Test
         @DisplayName("Should update customer info")
         public void testUpdateCustomerInfo() {
@@ -171,6 +218,44 @@ public class CustomerManagerTest {
         }
     }
 
+    @Nested
+    @DisplayName("Customer Batch Tests")
+    class BatchTests {
+
+        @Test
+        @DisplayName("Should add valid customers and report rejected ones")
+        public void testAddCustomers() {
+            Customer customer1 = newCustomer("Vitalii", "Chepeliuk", "Komarov", "5-20-86", "AK 373979");
+            Customer customer2 = newCustomer("Juraj", "Kolchak", "Komarov", "5-34-86", "AK 372548");
+            Customer duplicateLicense = newCustomer("John", "Doe", "Praha", "1-23-45", "AK 373979");
+
+            BatchResult<Customer> result = manager.addCustomers(Arrays.asList(customer1, customer2, duplicateLicense, null));
+
+            assertCustomerDeepEquals(Arrays.asList(customer1, customer2), result.written());
+            assertEquals(2, result.rejected().size());
+            assertCustomerDeepEquals(Arrays.asList(customer1, customer2), manager.getAllCustomers());
+        }
+
+        @Test
+        @DisplayName("Should update and remove customers in batches")
+        public void testUpdateAndRemoveCustomers() {
+            Customer customer1 = newCustomer("Vitalii", "Chepeliuk", "Komarov", "5-20-86", "AK 373979");
+            Customer customer2 = newCustomer("Juraj", "Kolchak", "Komarov", "5-34-86", "AK 372548");
+            manager.addCustomers(Arrays.asList(customer1, customer2));
+
+            customer1 = customer1.withAddress("Brno");
+            Customer stolenLicense = customer2.withDriversLicense("AK 373979");
+            BatchResult<Customer> updated = manager.updateCustomers(Arrays.asList(customer1, stolenLicense));
+            assertEquals(1, updated.written().size());
+            assertEquals(1, updated.rejected().size());
+            assertCustomerDeepEquals(customer1, manager.findCustomerByID(customer1.uuid()));
+
+            BatchResult<Customer> removed = manager.removeCustomers(Arrays.asList(customer1, customer2));
+            assertTrue(removed.isComplete());
+            assertTrue(manager.getAllCustomers().isEmpty());
+        }
+    }
+
     // Helpers
     public static Customer newCustomer(String firstName, String lastName, String address, String phoneNumber, String driversLicense) {
         return Customer.create(firstName, lastName, address, phoneNumber, driversLicense, false);
@@ -0,0 +1,67 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Database Executor Tests")
+public class DatabaseExecutorTest {
+
+    private DatabaseExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new DatabaseExecutor(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    @DisplayName("Should run tasks on virtual threads")
+    public void virtualThreads() throws Exception {
+        assertTrue(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+    }
+
+    @Test
+    @DisplayName("Should never run more tasks at once than the bound")
+    public void boundedConcurrency() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executor.run(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertTrue(maxRunning.get() <= 4, "max running " + maxRunning.get());
+        assertEquals(0, executor.activeTasks());
+    }
+
+    @Test
+    @DisplayName("Should complete the future exceptionally when the manager call fails")
+    public void failurePropagates() {
+        CompletableFuture<Car> future = executor.submit(() -> {
+            throw new TransactionException("Error when getting Car from DB");
+        });
+        ExecutionException ex = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(TransactionException.class, ex.getCause());
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseExecutor(0));
+    }
+}
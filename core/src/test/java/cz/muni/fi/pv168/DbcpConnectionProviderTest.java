@@ -0,0 +1,75 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import org.hibernate.cfg.Configuration;
+
+@DisplayName("DBCP Connection Provider Tests")
+public class DbcpConnectionProviderTest {
+
+    private DbcpConnectionProvider provider;
+
+    @BeforeEach
+    public void setUp() {
+        // Reuse the connection settings of the application pool, but with a single connection
+        Map<String, Object> settings = new HashMap<>();
+        new Configuration().configure("hibernate.cfg.xml").getProperties()
+                .forEach((key, value) -> settings.put(key.toString(), value));
+        settings.put("hibernate.dbcp.initialSize", "0");
+        settings.put("hibernate.dbcp.minIdle", "0");
+        settings.put("hibernate.dbcp.maxTotal", "1");
+        settings.put("hibernate.dbcp.maxWaitMillis", "100");
+        settings.put(DbcpConnectionProvider.LEAK_DETECTION_THRESHOLD, "50");
+        provider = new DbcpConnectionProvider();
+        provider.configure(settings);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        provider.stop();
+    }
+
+    @Test
+    @DisplayName("Should be used by the application SessionFactory")
+    public void applicationPool() {
+        new CarManagerImplementation().getAllCars();
+
+        ConnectionPoolStatistics statistics = HibernateSessionFactory.getConnectionPoolStatistics();
+        assertNotNull(statistics);
+        assertTrue(statistics.acquisitions() > 0);
+        assertEquals(statistics.maxTotal(), HibernateSessionFactory.getConnectionPoolSize());
+    }
+
+    @Test
+    @DisplayName("Should count acquisitions and time out when the pool is exhausted")
+    public void exhaustedPool() throws SQLException {
+        Connection connection = provider.getConnection();
+        assertEquals(1, provider.getStatistics().active());
+
+        assertThrows(SQLException.class, provider::getConnection);
+        provider.closeConnection(connection);
+
+        ConnectionPoolStatistics statistics = provider.getStatistics();
+        assertEquals(0, statistics.active());
+        assertEquals(1, statistics.idle());
+        assertEquals(1, statistics.acquisitions());
+        assertEquals(1, statistics.timeouts());
+    }
+
+    @Test
+    @DisplayName("Should report a connection held longer than the leak detection threshold once")
+    public void leakDetection() throws Exception {
+        Connection connection = provider.getConnection();
+        Thread.sleep(300);
+        assertEquals(1, provider.getStatistics().leaks());
+        provider.closeConnection(connection);
+
+        provider.closeConnection(provider.getConnection());
+        assertEquals(1, provider.getStatistics().leaks());
+    }
+}
@@ -0,0 +1,81 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+@DisplayName("Flight Recording Tests")
+public class FlightRecordingTest {
+
+    private CarManager carManager;
+    private CustomerManager customerManager;
+    private RentManager rentManager;
+
+    @BeforeEach
+    public void setUp() {
+        carManager = new CarManagerImplementation();
+        customerManager = new CustomerManagerImplementation();
+        rentManager = new RentManagerImplementation();
+        rentManager.tryCreateTables();
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createMutationQuery("DELETE FROM Rent").executeUpdate();
+            session.createMutationQuery("DELETE FROM Car").executeUpdate();
+            session.createMutationQuery("DELETE FROM Customer").executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    @Test
+    @DisplayName("Should record the rental and session events with the bundled settings")
+    public void recordsRentalEvents(@TempDir Path directory) throws Exception {
+        Car car = Car.create("Škoda", "Black", true, 200.0, "2J2 0001");
+        Customer customer = Customer.create("Pepa", "Novák", "Brno", "777 123 456", "JF123456", false);
+        carManager.addCar(car);
+        customerManager.addCustomer(customer);
+
+        Path file = directory.resolve("carrental.jfr");
+        try (Recording recording = new Recording(FlightRecording.settings())) {
+            recording.enable("cz.muni.fi.pv168.SessionClosed").withThreshold(Duration.ZERO);
+            recording.start();
+            rentManager.rentCarToCustomer(car, customer, LocalDate.now(), LocalDate.now().plusDays(2));
+            assertTrue(rentManager.hasOverlappingRent(car.uuid(), LocalDate.now(), LocalDate.now()));
+            rentManager.getCarFromCustomer(carManager.findCarByID(car.uuid()), customerManager.findCustomerByID(customer.uuid()));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent booked = event(events, "cz.muni.fi.pv168.RentBooked");
+        assertEquals(car.uuid(), booked.getString("carId"));
+        assertEquals(customer.uuid(), booked.getString("customerId"));
+        assertFalse(booked.getBoolean("inUnitOfWork"));
+        assertTrue(booked.getDuration().toNanos() > 0);
+        RecordedEvent returned = event(events, "cz.muni.fi.pv168.CarReturned");
+        assertEquals(1, returned.getInt("rentsClosed"));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("cz.muni.fi.pv168.OverlapCheck")
+                && event.getBoolean("overlapping")));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("cz.muni.fi.pv168.OverlapCheck")
+                && !event.getBoolean("overlapping")));
+
+        RecordedEvent closed = events.stream()
+                .filter(event -> event.getEventType().getName().equals("cz.muni.fi.pv168.SessionClosed")
+                        && event.getInt("commits") == 1 && event.getInt("statements") > 0)
+                .findFirst().orElseThrow();
+        long sessionId = closed.getLong("sessionId");
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("cz.muni.fi.pv168.SessionOpened")
+                && event.getLong("sessionId") == sessionId));
+    }
+
+    private static RecordedEvent event(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,78 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import javax.management.ObjectName;
+
+@DisplayName("Manager Metrics Tests")
+public class ManagerMetricsTest {
+
+    private ManagerMetrics metrics;
+    private CarManager manager;
+
+    @BeforeEach
+    public void setUp() {
+        metrics = new ManagerMetrics();
+        manager = metrics.wrap(CarManager.class, new CarManagerImplementation());
+        manager.tryCreateTables();
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createMutationQuery("DELETE FROM Rent").executeUpdate();
+            session.createMutationQuery("DELETE FROM Car").executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    @Test
+    @DisplayName("Should count calls, errors and latencies of the wrapped manager")
+    public void recordsCalls() {
+        Car car = Car.create("Škoda", "Black", true, 200.0, "0B6 6835");
+        manager.addCar(car);
+        assertEquals(car, manager.findCarByID(car.uuid()));
+        assertThrows(IllegalArgumentException.class, () -> manager.addCar(null));
+
+        assertEquals(2L, metrics.getCallCounts().get("CarManager.addCar"));
+        assertEquals(1L, metrics.getErrorCounts().get("CarManager.addCar"));
+        assertEquals(0L, metrics.getErrorCounts().get("CarManager.findCarByID"));
+        assertTrue(metrics.getMaxLatencyMillis().get("CarManager.addCar") > 0);
+
+        String scrape = metrics.scrape();
+        assertTrue(scrape.contains("carrental_manager_operation_duration_seconds_count{operation=\"CarManager.addCar\"} 2\n"));
+        assertTrue(scrape.contains("carrental_manager_operation_duration_seconds_bucket{operation=\"CarManager.addCar\",le=\"+Inf\"} 2\n"));
+        assertTrue(scrape.contains("carrental_manager_operation_errors_total"
+                + "{operation=\"CarManager.addCar\",exception=\"IllegalArgumentException\"} 1\n"));
+        assertTrue(scrape.contains("hibernate_second_level_cache_requests_total{result=\"hit\"}"));
+        assertTrue(scrape.contains("carrental_connection_pool_connections{state=\"max\"}"));
+    }
+
+    @Test
+    @DisplayName("Should serve the metrics over HTTP and JMX")
+    public void exported() throws Exception {
+        manager.getAllCars();
+
+        try (MetricsHttpServer server = MetricsHttpServer.start(MetricsHttpServer.bindAddress(), 0, metrics)) {
+            assertTrue(server.getAddress().getAddress().isLoopbackAddress());
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://" + server.getAddress().getHostString() + ":" + server.getPort()
+                            + MetricsHttpServer.PATH)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+            assertTrue(response.body().contains("operation=\"CarManager.getAllCars\""));
+        }
+
+        ManagerMetrics.instrument(CarManager.class, new CarManagerImplementation()).getAllCars();
+        Object counts = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(ManagerMetrics.OBJECT_NAME), "CallCounts");
+        assertNotNull(counts);
+        Map<String, Long> calls = ManagerMetrics.getInstance().getCallCounts();
+        assertTrue(calls.get("CarManager.getAllCars") >= 1);
+    }
+}
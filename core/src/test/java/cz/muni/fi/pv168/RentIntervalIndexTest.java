@@ -0,0 +1,152 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@DisplayName("Rent Interval Index Tests")
+public class RentIntervalIndexTest {
+
+    private static final String CAR = "car-1";
+
+    private Map<String, List<Rent>> stored;
+    private int loads;
+    private RentIntervalIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        stored = new HashMap<>();
+        loads = 0;
+        index = new RentIntervalIndex(carID -> {
+            loads++;
+            return new ArrayList<>(stored.getOrDefault(carID, List.of()));
+        });
+    }
+
+    @Test
+    @DisplayName("Should detect overlapping periods with inclusive bounds")
+    public void conflicts() {
+        store(rent("2012-03-21", "2012-03-31"), rent("2012-04-10", "2012-04-15"));
+
+        assertTrue(index.conflicts(CAR, day("2012-03-22"), day("2012-03-30"), null));
+        assertTrue(index.conflicts(CAR, day("2012-03-20"), day("2012-04-01"), null));
+        assertTrue(index.conflicts(CAR, day("2012-03-31"), day("2012-04-02"), null));
+        assertTrue(index.conflicts(CAR, day("2012-04-01"), day("2012-04-10"), null));
+        assertFalse(index.conflicts(CAR, day("2012-04-01"), day("2012-04-09"), null));
+        assertFalse(index.conflicts(CAR, day("2012-03-01"), day("2012-03-20"), null));
+        assertFalse(index.conflicts("other-car", day("2012-03-22"), day("2012-03-30"), null));
+    }
+
+    @Test
+    @DisplayName("Should ignore the excluded rent")
+    public void conflictsExcludingRent() {
+        Rent rent = rent("2012-03-21", "2012-03-31");
+        store(rent);
+
+        assertFalse(index.conflicts(CAR, day("2012-03-25"), day("2012-04-05"), rent.uuid()));
+        assertTrue(index.conflicts(CAR, day("2012-03-25"), day("2012-04-05"), "another-rent"));
+    }
+
+    @Test
+    @DisplayName("Should find the earliest free window")
+    public void earliestFreeWindow() {
+        store(rent("2012-03-21", "2012-03-31"), rent("2012-04-03", "2012-04-05"), rent("2012-04-08", "2012-04-09"));
+
+        assertEquals(day("2012-03-01"), index.earliestFreeWindow(CAR, day("2012-03-01"), 20));
+        assertEquals(day("2012-04-01"), index.earliestFreeWindow(CAR, day("2012-03-20"), 2));
+        assertEquals(day("2012-04-01"), index.earliestFreeWindow(CAR, day("2012-03-25"), 2));
+        assertEquals(day("2012-04-06"), index.earliestFreeWindow(CAR, day("2012-04-03"), 2));
+        assertEquals(day("2012-04-10"), index.earliestFreeWindow(CAR, day("2012-03-25"), 3));
+        assertThrows(IllegalArgumentException.class, () -> index.earliestFreeWindow(CAR, day("2012-03-25"), 0));
+    }
+
+    @Test
+    @DisplayName("Should follow committed bookings without reloading")
+    public void bookedAndReleased() {
+        assertFalse(index.conflicts(CAR, day("2012-03-21"), day("2012-03-31"), null));
+        Rent rent = rent("2012-03-21", "2012-03-31");
+        store(rent);
+        index.booked(rent);
+
+        assertFalse(index.conflicts(CAR, day("2012-04-01"), day("2012-04-02"), null));
+        assertEquals(day("2012-04-01"), index.earliestFreeWindow(CAR, day("2012-03-25"), 2));
+
+        Rent extended = rent.withDueDate(LocalDate.parse("2012-04-05"));
+        stored.clear();
+        store(extended);
+        index.booked(extended);
+        assertEquals(day("2012-04-06"), index.earliestFreeWindow(CAR, day("2012-03-25"), 2));
+
+        stored.clear();
+        index.released(CAR, rent.uuid());
+        assertFalse(index.conflicts(CAR, day("2012-03-25"), day("2012-04-02"), null));
+        assertEquals(1, loads);
+    }
+
+    @Test
+    @DisplayName("Should confirm a conflict against the database before reporting it")
+    public void staleConflictIsReloaded() {
+        store(rent("2012-03-21", "2012-03-31"));
+        assertTrue(index.conflicts(CAR, day("2012-03-25"), day("2012-03-26"), null));
+
+        // Released by another writer behind the index's back
+        stored.clear();
+        assertFalse(index.conflicts(CAR, day("2012-03-25"), day("2012-03-26"), null));
+        assertEquals(2, loads);
+    }
+
+    @Test
+    @DisplayName("Should load a car again once its periods are older than the TTL")
+    public void expiredEntryIsReloaded() {
+        RentIntervalIndex expiring = new RentIntervalIndex(carID -> {
+            loads++;
+            return new ArrayList<>(stored.getOrDefault(carID, List.of()));
+        }, 0);
+        assertEquals(day("2012-03-21"), expiring.earliestFreeWindow(CAR, day("2012-03-21"), 2));
+
+        // Booked by another process, the index is not told about it
+        store(rent("2012-03-21", "2012-03-31"));
+        assertEquals(day("2012-04-01"), expiring.earliestFreeWindow(CAR, day("2012-03-21"), 2));
+        assertTrue(expiring.conflicts(CAR, day("2012-03-25"), day("2012-03-26"), null));
+        assertEquals(3, loads);
+    }
+
+    @Test
+    @DisplayName("Should not cache a load that raced with a committed booking")
+    public void loadRacingBookingIsNotCached() {
+        Rent rent = rent("2012-03-21", "2012-03-31");
+        RentIntervalIndex racing = new RentIntervalIndex(carID -> {
+            List<Rent> snapshot = new ArrayList<>(stored.getOrDefault(carID, List.of()));
+            if (loads++ == 0) {
+                // Committed after the load read its rows, but before the load is cached
+                store(rent);
+                index.booked(rent);
+            }
+            return snapshot;
+        });
+        index = racing;
+
+        assertEquals(day("2012-03-21"), racing.earliestFreeWindow(CAR, day("2012-03-21"), 2));
+        assertEquals(day("2012-04-01"), racing.earliestFreeWindow(CAR, day("2012-03-21"), 2));
+        assertEquals(2, loads);
+    }
+
+    private void store(Rent... rents) {
+        for (Rent rent : rents) {
+            stored.computeIfAbsent(rent.carID(), id -> new ArrayList<>()).add(rent);
+        }
+    }
+
+    private static Rent rent(String from, String to) {
+        return Rent.create(LocalDate.parse(from), LocalDate.parse(to), CAR, "customer-1");
+    }
+
+    private static LocalDate day(String date) {
+        return LocalDate.parse(date);
+    }
+}
@@ -3,10 +3,18 @@ package cz.muni.fi.pv168;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
-import java.sql.Date;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hibernate.Cache;
 
 @DisplayName("Rental Manager Tests")
 public class RentalManagerTest {
@@ -89,8 +97,8 @@ public class RentalManagerTest {
             customerManager.updateCustomerInfo(customer1);
             customerManager.updateCustomerInfo(customer2);
 
-            manager.rentCarToCustomer(car1, customer1, Date.valueOf("2012-03-21"), Date.valueOf("2012-03-31"));
-            manager.rentCarToCustomer(car3, customer2, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27"));
+            manager.rentCarToCustomer(car1, customer1, LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"));
+            manager.rentCarToCustomer(car3, customer2, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"));
 
             // Verify
             List<Car> carsRentedToCustomer1 = Arrays.asList(carManager.findCarByID(car1.uuid()));
@@ -115,16 +123,16 @@ public class RentalManagerTest {
             // But here we verify basic constraints
             
             // Null arguments
-            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(null, customer2, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27")));
-            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(car2, null, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27")));
+            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(null, customer2, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27")));
+            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(car2, null, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27")));
             
             // Invalid IDs
-            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(carWithoutID, customer2, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27")));
-            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(car2, customerWithoutID, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27")));
+            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(carWithoutID, customer2, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27")));
+            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(car2, customerWithoutID, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27")));
             
             // Not in DB
-            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(carNotInDB, customer2, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27")));
-            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(car2, customerNotInDB, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27")));
+            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(carNotInDB, customer2, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27")));
+            assertThrows(IllegalArgumentException.class, () -> manager.rentCarToCustomer(car2, customerNotInDB, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27")));
         }
 
         @Test
@@ -136,34 +144,103 @@ public class RentalManagerTest {
             customerManager.updateCustomerInfo(customer2);
 
             // Base rent
-            manager.rentCarToCustomer(car1, customer1, Date.valueOf("2012-03-21"), Date.valueOf("2012-03-31"));
+            manager.rentCarToCustomer(car1, customer1, LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"));
             
             // Inside
             assertThrows(IllegalArgumentException.class, () -> 
-                manager.addRent(Rent.create(Date.valueOf("2012-03-22"), Date.valueOf("2012-03-30"), car1.uuid(), customer2.uuid())));
+                manager.addRent(Rent.create(LocalDate.parse("2012-03-22"), LocalDate.parse("2012-03-30"), car1.uuid(), customer2.uuid())));
             
             // Enveloping
             assertThrows(IllegalArgumentException.class, () -> 
-                manager.addRent(Rent.create(Date.valueOf("2012-03-20"), Date.valueOf("2012-04-01"), car1.uuid(), customer2.uuid())));
+                manager.addRent(Rent.create(LocalDate.parse("2012-03-20"), LocalDate.parse("2012-04-01"), car1.uuid(), customer2.uuid())));
             
             // Start overlap
             assertThrows(IllegalArgumentException.class, () -> 
-                manager.addRent(Rent.create(Date.valueOf("2012-03-20"), Date.valueOf("2012-03-22"), car1.uuid(), customer2.uuid())));
+                manager.addRent(Rent.create(LocalDate.parse("2012-03-20"), LocalDate.parse("2012-03-22"), car1.uuid(), customer2.uuid())));
             
             // End overlap
             assertThrows(IllegalArgumentException.class, () -> 
-                manager.addRent(Rent.create(Date.valueOf("2012-03-30"), Date.valueOf("2012-04-01"), car1.uuid(), customer2.uuid())));
+                manager.addRent(Rent.create(LocalDate.parse("2012-03-30"), LocalDate.parse("2012-04-01"), car1.uuid(), customer2.uuid())));
             
             // Valid non-overlapping
             assertDoesNotThrow(() -> 
-                manager.addRent(Rent.create(Date.valueOf("2012-04-01"), Date.valueOf("2012-04-05"), car1.uuid(), customer2.uuid())));
+                manager.addRent(Rent.create(LocalDate.parse("2012-04-01"), LocalDate.parse("2012-04-05"), car1.uuid(), customer2.uuid())));
         }
 
         @Test
         @DisplayName("Should throw exception if start date is after end date")
         public void rentInvalidDates() {
             assertThrows(IllegalArgumentException.class, () -> 
-                manager.addRent(Rent.create(Date.valueOf("2012-04-01"), Date.valueOf("2012-03-31"), car1.uuid(), customer1.uuid())));
+                manager.addRent(Rent.create(LocalDate.parse("2012-04-01"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid())));
+        }
+    }
+
+    @Nested
+    @DisplayName("Rent Availability Tests")
+    class AvailabilityTests {
+
+        @Test
+        @DisplayName("Should answer overlap and free period lookups from booked rents")
+        public void overlapAndFreePeriod() {
+            manager.addRent(Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid()));
+            manager.addRent(Rent.create(LocalDate.parse("2012-04-03"), LocalDate.parse("2012-04-05"), car1.uuid(), customer2.uuid()));
+
+            assertTrue(manager.hasOverlappingRent(car1.uuid(), LocalDate.parse("2012-03-30"), LocalDate.parse("2012-04-01")));
+            assertFalse(manager.hasOverlappingRent(car1.uuid(), LocalDate.parse("2012-04-01"), LocalDate.parse("2012-04-02")));
+            assertFalse(manager.hasOverlappingRent(car2.uuid(), LocalDate.parse("2012-03-30"), LocalDate.parse("2012-04-01")));
+
+            assertEquals(LocalDate.parse("2012-04-01"), manager.findEarliestFreePeriod(car1.uuid(), LocalDate.parse("2012-03-25"), 2));
+            assertEquals(LocalDate.parse("2012-04-06"), manager.findEarliestFreePeriod(car1.uuid(), LocalDate.parse("2012-03-25"), 3));
+        }
+
+        @Test
+        @DisplayName("Should see a booking made through another rent manager")
+        public void bookingFromAnotherManager() {
+            assertEquals(LocalDate.parse("2012-03-21"), manager.findEarliestFreePeriod(car1.uuid(), LocalDate.parse("2012-03-21"), 2));
+
+            RentManagerImplementation otherManager = new RentManagerImplementation();
+            otherManager.addRent(Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid()));
+
+            // Both managers share the index of the SessionFactory
+            assertEquals(LocalDate.parse("2012-04-01"), manager.findEarliestFreePeriod(car1.uuid(), LocalDate.parse("2012-03-21"), 2));
+        }
+
+        @Test
+        @DisplayName("Should reject an overlap booked by another process through the database constraint")
+        public void overlapFromAnotherWriter() {
+            // Loads car1 into the index while the car is still free
+            assertFalse(manager.hasOverlappingRent(car1.uuid(), LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31")));
+
+            // Another process writes the rent directly, the index is not told about it
+            try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+                session.beginTransaction();
+                session.persist(Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid()));
+                session.getTransaction().commit();
+            }
+
+            Rent clashing = Rent.create(LocalDate.parse("2012-03-31"), LocalDate.parse("2012-04-02"), car1.uuid(), customer2.uuid());
+            assertThrows(IllegalArgumentException.class, () -> manager.addRent(clashing));
+            assertEquals(1, manager.getAllRents().size());
+            assertTrue(manager.hasOverlappingRent(car1.uuid(), LocalDate.parse("2012-03-31"), LocalDate.parse("2012-04-02")));
+        }
+
+        @Test
+        @DisplayName("Should resolve cars and customers of many owners at once")
+        public void batchLookups() {
+            manager.addRent(Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid()));
+            manager.addRent(Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car2.uuid(), customer1.uuid()));
+            manager.addRent(Rent.create(LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"), car3.uuid(), customer2.uuid()));
+
+            Map<Customer, List<Car>> cars = manager.getCarsForCustomers(Arrays.asList(customer1, customer2, customer3));
+            assertEquals(Set.of(car1.uuid(), car2.uuid()),
+                    cars.get(customer1).stream().map(Car::uuid).collect(Collectors.toSet()));
+            assertEquals(List.of(car3.uuid()), cars.get(customer2).stream().map(Car::uuid).toList());
+            assertTrue(cars.get(customer3).isEmpty());
+
+            Map<Car, Customer> customers = manager.getCustomersForCars(Arrays.asList(car1, car3, carNotInDB));
+            assertEquals(customer1.uuid(), customers.get(car1).uuid());
+            assertEquals(customer2.uuid(), customers.get(car3).uuid());
+            assertNull(customers.get(carNotInDB));
         }
     }
 
@@ -176,17 +253,17 @@ public class RentalManagerTest {
         public void updateRent() {
             customer1 = customer1.withActive(true);
             customerManager.updateCustomerInfo(customer1);
-            manager.rentCarToCustomer(car1, customer1, Date.valueOf("2012-03-21"), Date.valueOf("2012-03-31"));
+            manager.rentCarToCustomer(car1, customer1, LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"));
             
             // Refresh from DB to get updated status
             car1 = carManager.findCarByID(car1.uuid());
             Rent rent = manager.findRentWithCar(car1);
             
-            Rent extendedRent = rent.withDueDate(Date.valueOf("2012-04-05"));
+            Rent extendedRent = rent.withDueDate(LocalDate.parse("2012-04-05"));
             manager.updateRent(extendedRent);
             
             Rent updated = manager.findRentWithCar(car1);
-            assertEquals(Date.valueOf("2012-04-05"), updated.dueDate());
+            assertEquals(LocalDate.parse("2012-04-05"), updated.dueDate());
         }
     }
 
@@ -202,7 +279,7 @@ public class RentalManagerTest {
             customerManager.updateCustomerInfo(customer1);
             customerManager.updateCustomerInfo(customer2);
 
-            manager.rentCarToCustomer(car3, customer2, Date.valueOf("2012-03-15"), Date.valueOf("2012-03-27"));
+            manager.rentCarToCustomer(car3, customer2, LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"));
 
             // Return car
             manager.getCarFromCustomer(car3, customer2);
@@ -215,4 +292,215 @@ public class RentalManagerTest {
             assertThrows(IllegalArgumentException.class, () -> manager.findRentWithCar(car3));
         }
     }
+
+    @Nested
+    @DisplayName("Rent Atomicity Tests")
+    class AtomicityTests {
+
+        @Test
+        @DisplayName("Should leave car and customer status untouched when the rent insert fails")
+        public void failedBookingKeepsStatus() {
+            // Loads car1 into the index while it is free, so the clash below is only caught by rents_no_overlap
+            assertFalse(manager.hasOverlappingRent(car1.uuid(), LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31")));
+            try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+                session.beginTransaction();
+                session.persist(Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid()));
+                session.getTransaction().commit();
+            }
+
+            Rent clashing = Rent.create(LocalDate.parse("2012-03-25"), LocalDate.parse("2012-04-02"), car1.uuid(), customer2.uuid());
+            assertThrows(IllegalArgumentException.class, () -> manager.addRent(clashing));
+
+            assertTrue(carManager.findCarByID(car1.uuid()).available());
+            assertFalse(customerManager.findCustomerByID(customer2.uuid()).active());
+            assertEquals(1, manager.getAllRents().size());
+        }
+
+        @Test
+        @DisplayName("Should free the car and deactivate the customer in one transaction")
+        public void returnInOneTransaction() {
+            manager.addRent(Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car2.uuid(), customer3.uuid()));
+            assertFalse(carManager.findCarByID(car2.uuid()).available());
+            Customer renting = customerManager.findCustomerByID(customer3.uuid());
+            assertTrue(renting.active());
+
+            long transactionsBefore = HibernateSessionFactory.getSessionFactory().getStatistics().getTransactionCount();
+            manager.getCarFromCustomer(car2, renting);
+            long transactions = HibernateSessionFactory.getSessionFactory().getStatistics().getTransactionCount() - transactionsBefore;
+
+            assertEquals(1, transactions);
+            assertTrue(carManager.findCarByID(car2.uuid()).available());
+            assertFalse(customerManager.findCustomerByID(customer3.uuid()).active());
+        }
+    }
+
+    @Nested
+    @DisplayName("Rent Streaming Tests")
+    class StreamingTests {
+
+        @Test
+        @DisplayName("Should stream and page through rents")
+        public void streamAndPageRents() {
+            Rent rent1 = Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid());
+            Rent rent2 = Rent.create(LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"), car2.uuid(), customer2.uuid());
+            manager.addRents(Arrays.asList(rent1, rent2));
+
+            try (Stream<Rent> rents = manager.streamAllRents()) {
+                assertEquals(Set.of(rent1, rent2), rents.collect(Collectors.toSet()));
+            }
+
+            List<Rent> firstPage = manager.getRentsAfter(null, 1);
+            List<Rent> secondPage = manager.getRentsAfter(firstPage.get(0).uuid(), 1);
+            assertEquals(Set.of(rent1, rent2), Set.of(firstPage.get(0), secondPage.get(0)));
+            assertTrue(manager.getRentsAfter(secondPage.get(0).uuid(), 1).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should publish rents of a customer one requested row at a time")
+        public void publishCustomerRents() {
+            Rent rent1 = Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid());
+            Rent rent2 = Rent.create(LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"), car2.uuid(), customer1.uuid());
+            Rent rent3 = Rent.create(LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"), car3.uuid(), customer2.uuid());
+            manager.addRents(Arrays.asList(rent1, rent2, rent3));
+
+            List<Rent> received = new CopyOnWriteArrayList<>();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            new ReactiveRentManager(manager).getCustomerRents(customer1).subscribe(new Flow.Subscriber<>() {
+                private Flow.Subscription subscription;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onNext(Rent rent) {
+                    received.add(rent);
+                    subscription.request(1);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    done.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    done.complete(null);
+                }
+            });
+
+            done.join();
+            assertEquals(Set.of(rent1, rent2), Set.copyOf(received));
+        }
+    }
+
+    @Nested
+    @DisplayName("Rent Batch Tests")
+    class BatchTests {
+
+        @Test
+        @DisplayName("Should add rents in one batch and reject overlapping ones")
+        public void addRents() {
+            Rent rent1 = Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid());
+            Rent rent2 = Rent.create(LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"), car2.uuid(), customer2.uuid());
+            Rent overlapping = Rent.create(LocalDate.parse("2012-03-30"), LocalDate.parse("2012-04-02"), car1.uuid(), customer3.uuid());
+            Rent missingCar = Rent.create(LocalDate.parse("2012-03-15"), LocalDate.parse("2012-03-27"), carNotInDB.uuid(), customer3.uuid());
+
+            carManager.findCarByID(car3.uuid());
+            customerManager.findCustomerByID(customer3.uuid());
+            BatchResult<Rent> result = manager.addRents(Arrays.asList(rent1, rent2, overlapping, missingCar));
+
+            // The flags are set on the loaded entities, the cars and customers outside the batch stay cached
+            Cache cache = HibernateSessionFactory.getSessionFactory().getCache();
+            assertTrue(cache.containsEntity(Car.class, car3.uuid()));
+            assertTrue(cache.containsEntity(Customer.class, customer3.uuid()));
+            assertEquals(Arrays.asList(rent1, rent2), result.written());
+            assertEquals(2, result.rejected().size());
+            assertFalse(carManager.findCarByID(car1.uuid()).available());
+            assertFalse(carManager.findCarByID(car2.uuid()).available());
+            assertTrue(carManager.findCarByID(car3.uuid()).available());
+            assertTrue(customerManager.findCustomerByID(customer1.uuid()).active());
+            assertFalse(customerManager.findCustomerByID(customer3.uuid()).active());
+        }
+
+        @Test
+        @DisplayName("Should update and remove rents in batches")
+        public void updateAndRemoveRents() {
+            Rent rent1 = Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car1.uuid(), customer1.uuid());
+            Rent rent2 = Rent.create(LocalDate.parse("2012-04-05"), LocalDate.parse("2012-04-10"), car1.uuid(), customer2.uuid());
+            manager.addRents(Arrays.asList(rent1, rent2));
+
+            Rent extended = rent1.withDueDate(LocalDate.parse("2012-04-02"));
+            Rent clashing = rent2.withRentDate(LocalDate.parse("2012-04-01"));
+            BatchResult<Rent> updated = manager.updateRents(Arrays.asList(extended, clashing));
+            assertEquals(Arrays.asList(extended), updated.written());
+            assertEquals(1, updated.rejected().size());
+
+            carManager.findCarByID(car2.uuid());
+            BatchResult<Rent> removed = manager.removeRents(Arrays.asList(rent1, rent2));
+            assertTrue(removed.isComplete());
+            assertTrue(HibernateSessionFactory.getSessionFactory().getCache().containsEntity(Car.class, car2.uuid()));
+            assertTrue(manager.getAllRents().isEmpty());
+            assertTrue(carManager.findCarByID(car1.uuid()).available());
+            assertFalse(customerManager.findCustomerByID(customer1.uuid()).active());
+        }
+    }
+
+    @Nested
+    @DisplayName("Rental Unit of Work Tests")
+    class UnitOfWorkTests {
+
+        @Test
+        @DisplayName("Should run several manager calls in one committed transaction")
+        public void commitOnce() {
+            Car car = CarManagerTest.newCar("Grey", "1B2 3456", "Tatra", 250.0);
+            Customer customer = CustomerManagerTest.newCustomer("Jan", "Novak", "Brno", "5-11-11", "AK 111111");
+            Rent rent = Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car.uuid(), customer.uuid());
+
+            long transactionsBefore = HibernateSessionFactory.getSessionFactory().getStatistics().getTransactionCount();
+            RentalUnitOfWork.run(() -> {
+                assertTrue(RentalUnitOfWork.isActive());
+                customerManager.addCustomer(customer);
+                carManager.addCar(car);
+                manager.addRent(rent);
+                // Reads inside the unit see its uncommitted writes
+                assertEquals(customer, manager.findCustomerWithCar(carManager.findCarByID(car.uuid())));
+                assertTrue(carManager.getAllCars().contains(car));
+            });
+            long transactions = HibernateSessionFactory.getSessionFactory().getStatistics().getTransactionCount() - transactionsBefore;
+
+            assertEquals(1, transactions);
+            assertFalse(RentalUnitOfWork.isActive());
+            assertFalse(carManager.findCarByID(car.uuid()).available());
+            assertTrue(customerManager.findCustomerByID(customer.uuid()).active());
+            assertTrue(manager.hasOverlappingRent(car.uuid(), LocalDate.parse("2012-03-25"), LocalDate.parse("2012-03-26")));
+        }
+
+        @Test
+        @DisplayName("Should roll back every call when one of them fails")
+        public void rollbackOnFailure() {
+            Car car = CarManagerTest.newCar("Grey", "1B2 3456", "Tatra", 250.0);
+            Rent rent = Rent.create(LocalDate.parse("2012-03-21"), LocalDate.parse("2012-03-31"), car.uuid(), customer1.uuid());
+
+            assertThrows(TransactionException.class, () -> RentalUnitOfWork.run(() -> {
+                carManager.addCar(car);
+                manager.addRent(rent);
+                // A failed call dooms the unit even when its exception is caught
+                assertThrows(IllegalArgumentException.class,
+                        () -> carManager.addCar(CarManagerTest.newCar("Red", car.licensePlate(), "BMW", 500.0)));
+            }));
+
+            assertNull(carManager.findCarByID(car.uuid()));
+            assertTrue(manager.getAllRents().isEmpty());
+            assertFalse(manager.hasOverlappingRent(car.uuid(), LocalDate.parse("2012-03-25"), LocalDate.parse("2012-03-26")));
+
+            assertThrows(IllegalStateException.class, () -> RentalUnitOfWork.run(() -> {
+                carManager.addCar(car);
+                throw new IllegalStateException("Workflow aborted");
+            }));
+            assertNull(carManager.findCarByID(car.uuid()));
+        }
+    }
 }
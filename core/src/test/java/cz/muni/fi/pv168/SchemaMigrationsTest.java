@@ -0,0 +1,41 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.hibernate.cfg.Configuration;
+
+@DisplayName("Schema Migrations Tests")
+public class SchemaMigrationsTest {
+
+    @Test
+    @DisplayName("Should record every script and apply nothing on the next startup")
+    public void upToDate() {
+        HibernateSessionFactory.getSessionFactory();
+
+        List<Object[]> history;
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            history = session.createNativeQuery("SELECT version, checksum FROM " + SchemaMigrations.HISTORY_TABLE
+                    + " ORDER BY version", Object[].class).list();
+        }
+        List<SchemaMigrations.Migration> migrations = SchemaMigrations.migrations();
+        assertEquals(migrations.size(), history.size());
+        for (int i = 0; i < migrations.size(); i++) {
+            assertEquals(migrations.get(i).version(), ((Number) history.get(i)[0]).intValue());
+            assertEquals(migrations.get(i).checksum(), ((Number) history.get(i)[1]).longValue());
+        }
+
+        assertEquals(0, SchemaMigrations.migrate(new Configuration().configure("hibernate.cfg.xml").getProperties()));
+    }
+
+    @Test
+    @DisplayName("Should split a script into statements without comments")
+    public void statements() {
+        SchemaMigrations.Migration migration = new SchemaMigrations.Migration(9, "test", "V9__test.sql",
+                "-- comment;\nCREATE TABLE T (\n    ID INT\n);\n\nALTER TABLE T ADD COLUMN P DATERANGE;\n");
+
+        assertEquals(List.of("CREATE TABLE T (\n    ID INT\n)", "ALTER TABLE T ADD COLUMN P DATERANGE"),
+                migration.statements());
+    }
+}
@@ -0,0 +1,130 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+@DisplayName("Slow Query Log Tests")
+public class SlowQueryLogTest {
+
+    @BeforeEach
+    public void setUp() {
+        new CarManagerImplementation().tryCreateTables();
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createMutationQuery("DELETE FROM Rent").executeUpdate();
+            session.createMutationQuery("DELETE FROM Car").executeUpdate();
+            session.createMutationQuery("DELETE FROM Customer").executeUpdate();
+            session.getTransaction().commit();
+        }
+    }
+
+    @Test
+    @DisplayName("Should share a fingerprint between executions differing in literals, IN lists and comments")
+    public void fingerprint() {
+        assertEquals("select c1_0.id from cars c1_0 where c1_0.id in (...)",
+                SlowQueryLog.fingerprint("/* Car.findByIds */ select c1_0.id\n  from cars c1_0 where c1_0.id in (?, ?, ?)"));
+        assertEquals("select * from rents where due_date > ? and id = ?",
+                SlowQueryLog.fingerprint("SELECT * FROM rents WHERE due_date > '2012-03-21' AND id = 42"));
+        assertEquals("insert into cars (a,b) values (?,?), ...",
+                SlowQueryLog.fingerprint("insert into cars (a,b) values (?,?),(?,?),(?,?)"));
+    }
+
+    @Test
+    @DisplayName("Should aggregate the statements of the application pool with their rows")
+    public void applicationStatistics() {
+        CarManager manager = new CarManagerImplementation();
+        Car car = Car.create("Škoda", "Black", true, 200.0, "SQL 001");
+        manager.addCar(car);
+        manager.getAllCars();
+
+        List<QueryStatistics> statistics = HibernateSessionFactory.getQueryStatistics();
+        QueryStatistics insert = statistics.stream()
+                .filter(query -> query.fingerprint().startsWith("insert into cars")).findFirst().orElseThrow();
+        assertTrue(insert.count() >= 1);
+        assertTrue(insert.rows() >= 1);
+        assertTrue(insert.p50Nanos() > 0 && insert.p50Nanos() <= insert.p99Nanos() && insert.p99Nanos() <= insert.maxNanos());
+        assertTrue(statistics.stream().anyMatch(query -> query.fingerprint().startsWith("select") && query.rows() >= 1));
+    }
+
+    @Test
+    @DisplayName("Should log statements over the threshold with their caller")
+    public void slowStatement() {
+        SlowQueryLog log = new SlowQueryLog(0);
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        SlowQueryLog.logger.addHandler(handler);
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            session.doWork(connection -> {
+                Connection timed = log.wrap(connection);
+                try (PreparedStatement statement = timed.prepareStatement("SELECT 1 WHERE 1 = ?")) {
+                    statement.setInt(1, 1);
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            assertEquals(1, rows.getInt(1));
+                        }
+                    }
+                }
+            });
+        } finally {
+            SlowQueryLog.logger.removeHandler(handler);
+        }
+
+        assertEquals(1, records.size());
+        assertTrue(records.get(0).getMessage().contains("SlowQueryLogTest"));
+        assertTrue(records.get(0).getMessage().endsWith("select ? where ? = ?"));
+        QueryStatistics query = log.getStatistics().get(0);
+        assertEquals(1, query.count());
+        assertEquals(1, query.rows());
+    }
+
+    @Test
+    @DisplayName("Should count the rows of plain statements and hand out the timed statement")
+    public void plainStatementResultSet() {
+        SlowQueryLog log = new SlowQueryLog(TimeUnit.MINUTES.toMillis(1));
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            session.doWork(connection -> {
+                Connection timed = log.wrap(connection);
+                try (Statement statement = timed.createStatement()) {
+                    assertTrue(statement.execute("SELECT * FROM generate_series(1, 3)"));
+                    try (ResultSet rows = statement.getResultSet()) {
+                        while (rows.next()) {
+                            assertTrue(rows.getInt(1) > 0);
+                        }
+                        try (ResultSet again = rows.getStatement().executeQuery("SELECT 1")) {
+                            assertTrue(again.next());
+                        }
+                    }
+                }
+            });
+        }
+
+        List<QueryStatistics> statistics = log.getStatistics();
+        assertEquals(3, statistics.stream()
+                .filter(query -> query.fingerprint().equals("select * from generate_series(?, ?)"))
+                .findFirst().orElseThrow().rows());
+        assertTrue(statistics.stream().anyMatch(query -> query.fingerprint().equals("select ?") && query.count() == 1));
+    }
+}
@@ -0,0 +1,106 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@DisplayName("Tracing Tests")
+public class TracingTest {
+
+    private final List<Span> spans = new CopyOnWriteArrayList<>();
+    private Tracing tracing;
+    private CarManager carManager;
+    private CustomerManager customerManager;
+    private RentManager rentManager;
+
+    @BeforeEach
+    public void setUp() {
+        tracing = new Tracing(spans::add);
+        carManager = tracing.wrap(CarManager.class, new CarManagerImplementation());
+        customerManager = tracing.wrap(CustomerManager.class, new CustomerManagerImplementation());
+        rentManager = tracing.wrap(RentManager.class, new RentManagerImplementation());
+        rentManager.tryCreateTables();
+        try (var session = HibernateSessionFactory.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            session.createMutationQuery("DELETE FROM Rent").executeUpdate();
+            session.createMutationQuery("DELETE FROM Car").executeUpdate();
+            session.createMutationQuery("DELETE FROM Customer").executeUpdate();
+            session.getTransaction().commit();
+        }
+        spans.clear();
+    }
+
+    @Test
+    @DisplayName("Should nest the connection wait and the statements of a booking in its manager span")
+    public void booking() {
+        Car car = Car.create("Škoda", "Black", true, 200.0, "1T1 0001");
+        Customer customer = Customer.create("Pepa", "Novák", "Brno", "777 123 456", "TR123456", false);
+        try (Span booking = tracing.start("booking")) {
+            RentalUnitOfWork.run(() -> {
+                carManager.addCar(car);
+                customerManager.addCustomer(customer);
+            });
+            rentManager.rentCarToCustomer(car, customer, LocalDate.now(), LocalDate.now().plusDays(3));
+        }
+
+        Span booking = span("booking");
+        Span unit = span("RentalUnitOfWork");
+        Span rent = span("RentManager.rentCarToCustomer");
+        assertTrue(spans.stream().allMatch(span -> span.traceId().equals(booking.traceId())));
+        assertNull(booking.parentSpanId());
+        assertEquals(booking.spanId(), unit.parentSpanId());
+        assertEquals(unit.spanId(), span("CarManager.addCar").parentSpanId());
+        assertEquals(booking.spanId(), rent.parentSpanId());
+        assertEquals(booking, spans.get(spans.size() - 1));
+
+        assertTrue(spans.stream().anyMatch(span -> span.name().equals("connection.acquire")
+                && rent.spanId().equals(span.parentSpanId())));
+        Span insert = spans.stream()
+                .filter(span -> span.name().equals("sql") && rent.spanId().equals(span.parentSpanId())
+                        && span.attributes().get("db.statement").toString().startsWith("insert into rents"))
+                .findFirst().orElseThrow();
+        assertEquals(1L, insert.attributes().get("db.rows"));
+        assertTrue(insert.durationNanos() > 0 && insert.durationNanos() <= rent.durationNanos());
+    }
+
+    @Test
+    @DisplayName("Should export failed calls as JSON lines")
+    public void exportsJsonLines(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("spans.jsonl");
+        try (JsonLinesSpanExporter exporter = new JsonLinesSpanExporter(file)) {
+            CarManager manager = new Tracing(exporter).wrap(CarManager.class, new CarManagerImplementation());
+            assertThrows(IllegalArgumentException.class, () -> manager.addCar(null));
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).matches("\\{\"traceId\":\"[0-9a-f]{32}\",\"spanId\":\"[0-9a-f]{16}\",\"parentSpanId\":null,"
+                + "\"name\":\"CarManager.addCar\",\"start\":\"[^\"]+\",\"durationMicros\":\\d+,\"thread\":\"[^\"]+\","
+                + "\"attributes\":\\{},\"error\":\"IllegalArgumentException: [^\"]+\"}"));
+    }
+
+    @Test
+    @DisplayName("Should leave managers unwrapped while tracing is disabled")
+    public void disabled() {
+        Tracing disabled = new Tracing(null);
+        CarManager manager = new CarManagerImplementation();
+        assertSame(manager, disabled.wrap(CarManager.class, manager));
+        try (Span span = disabled.start("ignored")) {
+            span.attribute("key", "value");
+            assertTrue(span.attributes().isEmpty());
+        }
+        assertEquals(Map.of(), Span.NOOP.attributes());
+    }
+
+    private Span span(String name) {
+        return spans.stream().filter(span -> span.name().equals(name)).findFirst().orElseThrow();
+    }
+}
@@ -0,0 +1,56 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("Tuning Profiles Tests")
+public class TuningProfilesTest {
+
+    @Test
+    @DisplayName("Should build the application SessionFactory with the oltp profile")
+    public void defaultProfile() {
+        assertEquals("oltp", HibernateSessionFactory.getTuningProfile());
+        assertEquals(50, HibernateSessionFactory.getJdbcBatchSize());
+        assertEquals(500, HibernateSessionFactory.getJdbcFetchSize());
+        assertEquals(20, HibernateSessionFactory.getConnectionPoolSize());
+    }
+
+    @Test
+    @DisplayName("Should let the tuning file and system properties override the selected profile")
+    public void overrides(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("tuning.properties");
+        Files.writeString(file, "hibernate.jdbc.batch_size=300\nhibernate.dbcp.maxTotal=4\n");
+
+        Configuration configuration = new Configuration();
+        configuration.setProperty(TuningProfiles.PROFILE, "bulk-load");
+        configuration.setProperty(TuningProfiles.FILE, file.toString());
+        System.setProperty(AvailableSettings.STATEMENT_FETCH_SIZE, "42");
+        try {
+            assertEquals("bulk-load", TuningProfiles.apply(configuration));
+        } finally {
+            System.clearProperty(AvailableSettings.STATEMENT_FETCH_SIZE);
+        }
+
+        assertEquals("300", configuration.getProperty(AvailableSettings.STATEMENT_BATCH_SIZE));
+        assertEquals("4", configuration.getProperty("hibernate.dbcp.maxTotal"));
+        assertEquals("42", configuration.getProperty(AvailableSettings.STATEMENT_FETCH_SIZE));
+        assertEquals("64", configuration.getProperty(AvailableSettings.DEFAULT_BATCH_FETCH_SIZE));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown profiles")
+    public void unknownProfile() {
+        Configuration configuration = new Configuration();
+        configuration.setProperty(TuningProfiles.PROFILE, "nightly");
+        assertThrows(IllegalArgumentException.class, () -> TuningProfiles.apply(configuration));
+        for (String profile : TuningProfiles.PROFILES) {
+            assertFalse(TuningProfiles.load(profile).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package cz.muni.fi.pv168;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@DisplayName("UUIDv7 Generator Tests")
+public class UuidV7Test {
+
+    @Test
+    @DisplayName("Should generate version 7 UUIDs carrying the current time")
+    public void versionAndTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.generate();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after + 1);
+        assertTrue(UuidStringJavaType.isValid(uuid.toString()));
+    }
+
+    @Test
+    @DisplayName("Should generate strictly increasing IDs within one millisecond")
+    public void monotonic() {
+        String previous = UuidV7.generate().toString();
+        for (int i = 0; i < 100_000; i++) {
+            String next = UuidV7.generate().toString();
+            assertTrue(next.compareTo(previous) > 0, next + " is not after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("Should generate unique IDs for concurrent callers")
+    public void concurrentCallers() throws Exception {
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<String> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(UuidV7.generate().toString());
+                    }
+                    return ids;
+                }));
+            }
+
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                List<String> ids = future.get();
+                for (int i = 1; i < ids.size(); i++) {
+                    assertTrue(ids.get(i).compareTo(ids.get(i - 1)) > 0);
+                }
+                all.addAll(ids);
+            }
+            assertEquals(threads * perThread, all.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
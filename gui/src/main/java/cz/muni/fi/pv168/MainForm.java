@@ -2,7 +2,6 @@ package cz.muni.fi.pv168;
 
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
-import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -15,8 +14,10 @@ import org.apache.commons.dbcp.BasicDataSource;
 import javax.sql.DataSource;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,9 +26,17 @@ public class MainForm {
     private Stage primaryStage;
     private ResourceBundle localization = ResourceBundle.getBundle("cz.muni.fi.pv168.localization");
     private DataSource dataSource;
-    private CarManager carManager = new CarManagerImplementation();
-    private CustomerManager customerManager = new CustomerManagerImplementation();
-    private RentManager rentManager = new RentManagerImplementation();
+    private CarManager carManager = ManagerMetrics.instrument(CarManager.class,
+            Tracing.instrument(CarManager.class, new CarManagerImplementation()));
+    private CustomerManager customerManager = ManagerMetrics.instrument(CustomerManager.class,
+            Tracing.instrument(CustomerManager.class, new CustomerManagerImplementation()));
+    private RentManager rentManager = ManagerMetrics.instrument(RentManager.class,
+            Tracing.instrument(RentManager.class, new RentManagerImplementation()));
+    private MetricsHttpServer metricsServer;
+    private DatabaseExecutor databaseExecutor;
+    private AsyncCarManager asyncCarManager;
+    private AsyncCustomerManager asyncCustomerManager;
+    private AsyncRentManager asyncRentManager;
 
     // UI Components
     private TableView<Car> carTable;
@@ -49,6 +58,7 @@ public class MainForm {
     public void start(Stage primaryStage) throws Exception {
         this.primaryStage = primaryStage;
         initializeDataSource();
+        startMetricsServer();
         createUI();
         primaryStage.setTitle("Car Rental Manager");
         primaryStage.setWidth(1000);
@@ -58,9 +68,29 @@ public class MainForm {
                 e.consume();
             }
         });
+        primaryStage.setOnHidden(e -> {
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+            if (databaseExecutor != null) {
+                databaseExecutor.close();
+            }
+        });
         primaryStage.show();
     }
 
+    private void startMetricsServer() {
+        Integer port = Integer.getInteger(MetricsHttpServer.PORT);
+        if (port == null) {
+            return;
+        }
+        try {
+            metricsServer = MetricsHttpServer.start(port);
+        } catch (IOException ex) {
+            Logger.getLogger(MainForm.class.getName()).log(Level.WARNING, "Metrics are not served on port " + port, ex);
+        }
+    }
+
     private void initializeDataSource() {
         try {
             FileOutputStream fs = new FileOutputStream("main.log", true);
@@ -880,26 +910,29 @@ public class MainForm {
     }
 
     private void loadAllData() {
-        Task<Void> loadTask = new Task<Void>() {
-            @Override
-            protected Void call() throws Exception {
-                // Load cars
-                List<Car> cars = carManager.getAllCars();
-                Platform.runLater(() -> carsModel.mergeCars(cars));
-
-                // Load customers
-                List<Customer> customers = customerManager.getAllCustomers();
-                Platform.runLater(() -> customersModel.mergeCustomers(customers));
-
-                // Load rents
-                List<Rent> rents = rentManager.getAllRents();
-                Platform.runLater(() -> rentsModel.mergeRents(rents));
+        if (databaseExecutor == null) {
+            databaseExecutor = new DatabaseExecutor();
+            asyncCarManager = new AsyncCarManager(carManager, databaseExecutor);
+            asyncCustomerManager = new AsyncCustomerManager(customerManager, databaseExecutor);
+            asyncRentManager = new AsyncRentManager(rentManager, databaseExecutor);
+        }
 
-                return null;
-            }
-        };
+        // The three tables load concurrently, each one is merged as soon as it arrives
+        asyncCarManager.getAllCars()
+            .thenAccept(cars -> Platform.runLater(() -> carsModel.mergeCars(cars)))
+            .exceptionally(this::showLoadFailure);
+        asyncCustomerManager.getAllCustomers()
+            .thenAccept(customers -> Platform.runLater(() -> customersModel.mergeCustomers(customers)))
+            .exceptionally(this::showLoadFailure);
+        asyncRentManager.getAllRents()
+            .thenAccept(rents -> Platform.runLater(() -> rentsModel.mergeRents(rents)))
+            .exceptionally(this::showLoadFailure);
+    }
 
-        new Thread(loadTask).start();
+    private Void showLoadFailure(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        Platform.runLater(() -> showAlert(localization.getString("error"), cause.getMessage()));
+        return null;
     }
 
     private DataSource prepareDataSource() {
@@ -1095,15 +1128,15 @@ public class MainForm {
         }
         final double dailyPrice = (car != null && car.rentalPayment() != null) ? car.rentalPayment() : 0.0;
 
-        DatePicker rentDatePicker = new DatePicker(rent.rentDate().toLocalDate());
+        DatePicker rentDatePicker = new DatePicker(rent.rentDate());
         rentDatePicker.setStyle("-fx-padding: 8; -fx-font-size: 12; -fx-background-color: #45475a; -fx-text-fill: #cdd6f4; -fx-control-inner-background: #45475a;");
         
         // Disable rent date if it has already started
-        if (rent.rentDate().toLocalDate().isBefore(LocalDate.now()) || rent.rentDate().toLocalDate().isEqual(LocalDate.now())) {
+        if (rent.rentDate().isBefore(LocalDate.now()) || rent.rentDate().isEqual(LocalDate.now())) {
             rentDatePicker.setDisable(true);
         }
 
-        DatePicker dueDatePicker = new DatePicker(rent.dueDate().toLocalDate());
+        DatePicker dueDatePicker = new DatePicker(rent.dueDate());
         dueDatePicker.setStyle("-fx-padding: 8; -fx-font-size: 12; -fx-background-color: #45475a; -fx-text-fill: #cdd6f4; -fx-control-inner-background: #45475a;");
 
         Label rentDateLabel = new Label("Lease Date:");
@@ -1146,8 +1179,8 @@ public class MainForm {
 
         Optional<ButtonType> result = dialog.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            java.sql.Date newRentDate = java.sql.Date.valueOf(rentDatePicker.getValue());
-            java.sql.Date newDueDate = java.sql.Date.valueOf(dueDatePicker.getValue());
+            LocalDate newRentDate = rentDatePicker.getValue();
+            LocalDate newDueDate = dueDatePicker.getValue();
             
             Rent updatedRent = rent.withRentDate(newRentDate).withDueDate(newDueDate);
             rentsModel.updateRent(rent, updatedRent);
@@ -7,7 +7,6 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.util.StringConverter;
 
-import java.sql.Date;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -143,10 +142,8 @@ public class NewRentForm {
                         return null;
                     }
 
-                    LocalDate localDate = rentDatePicker.getValue();
-                    Date rentDate = Date.valueOf(localDate);
-                    LocalDate dueLocalDate = localDate.plusDays(durationSpinner.getValue());
-                    Date dueDate = Date.valueOf(dueLocalDate);
+                    LocalDate rentDate = rentDatePicker.getValue();
+                    LocalDate dueDate = rentDate.plusDays(durationSpinner.getValue());
 
                     return Rent.create(rentDate, dueDate, selectedCar.uuid(), selectedCustomer.uuid());
                 } catch (Exception e) {
@@ -78,11 +78,11 @@ public class FxModelsTest {
         void testRentsFxModelMerge() {
             RentsFxModel model = new RentsFxModel();
             // Fake DB IDs for Car/Customer as they are just strings in Rent
-            Rent offlineRent = Rent.create(java.sql.Date.valueOf("2023-01-01"), java.sql.Date.valueOf("2023-01-05"), UUID.randomUUID().toString(), UUID.randomUUID().toString());
+            Rent offlineRent = Rent.create(java.time.LocalDate.parse("2023-01-01"), java.time.LocalDate.parse("2023-01-05"), UUID.randomUUID().toString(), UUID.randomUUID().toString());
             model.addRent(offlineRent);
             
             List<Rent> dbRents = new ArrayList<>();
-            dbRents.add(Rent.create(java.sql.Date.valueOf("2023-02-01"), java.sql.Date.valueOf("2023-02-05"), UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+            dbRents.add(Rent.create(java.time.LocalDate.parse("2023-02-01"), java.time.LocalDate.parse("2023-02-05"), UUID.randomUUID().toString(), UUID.randomUUID().toString()));
             
             model.mergeRents(dbRents);
             
@@ -0,0 +1,28 @@
+-- Converts the VARCHAR(36) keys created by earlier versions of postgres-init.sql
+-- to native 16 byte UUID columns. Run once against an existing database:
+--   psql -U admin -d car_rental_db -f postgres-migrate-uuid-keys.sql
+-- The schema then corresponds to migration version 1, see "Migrating an Existing Database" in DOCKER_SETUP.md.
+-- The cast fails and the whole migration is rolled back if any stored ID is not a UUID.
+
+BEGIN;
+
+ALTER TABLE RENTS DROP CONSTRAINT IF EXISTS rents_car_fkey;
+ALTER TABLE RENTS DROP CONSTRAINT IF EXISTS rents_customer_fkey;
+
+-- Primary key and secondary indexes are rebuilt by the type change
+ALTER TABLE CARS ALTER COLUMN ID TYPE UUID USING ID::uuid;
+ALTER TABLE CUSTOMERS ALTER COLUMN ID TYPE UUID USING ID::uuid;
+ALTER TABLE RENTS
+    ALTER COLUMN ID TYPE UUID USING ID::uuid,
+    ALTER COLUMN CAR TYPE UUID USING CAR::uuid,
+    ALTER COLUMN CUSTOMER TYPE UUID USING CUSTOMER::uuid;
+
+ALTER TABLE RENTS
+    ADD CONSTRAINT rents_car_fkey FOREIGN KEY (CAR) REFERENCES CARS(ID) ON DELETE CASCADE,
+    ADD CONSTRAINT rents_customer_fkey FOREIGN KEY (CUSTOMER) REFERENCES CUSTOMERS(ID) ON DELETE CASCADE;
+
+COMMIT;
+
+ANALYZE CARS;
+ANALYZE CUSTOMERS;
+ANALYZE RENTS;
@@ -0,0 +1,47 @@
+#!/bin/bash
+
+# JMH benchmarks of the core managers
+#
+#   ./run-benchmarks.sh                      all benchmarks at every data size
+#   ./run-benchmarks.sh RentManagerBenchmark only the matching benchmarks
+#   QUICK=1 ./run-benchmarks.sh              1k rows, shorter warmup and measurement, for a smoke run
+#
+# Each benchmark JVM starts its own PostgreSQL container (Docker is required) and seeds the same data set.
+# To run against an existing scratch database instead, whose tables are emptied:
+#
+#   BENCHMARK_JDBC_URL=jdbc:postgresql://localhost:15432/car_rental_bench ./run-benchmarks.sh
+#
+# Results are written as JSON to benchmarks/results, named after the commit and the time of the run,
+# together with the GC profiler's allocation rates. Extra JMH options can follow the benchmark pattern.
+
+set -e
+
+if ! command -v mvn &>/dev/null; then
+  echo "Error: Maven is not installed. Please install Maven 3.6.0 or higher."
+  exit 1
+fi
+
+cd "$(dirname "$0")"
+
+echo "Building benchmarks..."
+mvn -q -pl benchmarks -am package -DskipTests
+
+RESULTS_DIR="benchmarks/results"
+mkdir -p "$RESULTS_DIR"
+COMMIT=$(git rev-parse --short HEAD 2>/dev/null || echo "unknown")
+RESULT_FILE="$RESULTS_DIR/$(date -u +%Y%m%dT%H%M%SZ)-$COMMIT.json"
+
+JVM_OPTS=()
+if [ -n "$BENCHMARK_JDBC_URL" ]; then
+  JVM_OPTS+=("-Dbenchmark.jdbc.url=$BENCHMARK_JDBC_URL"
+             "-Dbenchmark.jdbc.username=${BENCHMARK_JDBC_USERNAME:-admin}"
+             "-Dbenchmark.jdbc.password=${BENCHMARK_JDBC_PASSWORD:-admin}")
+fi
+
+JMH_OPTS=(-rf json -rff "$RESULT_FILE" -prof gc)
+if [ -n "$QUICK" ]; then
+  JMH_OPTS+=(-p rows=1000 -wi 1 -w 1s -i 2 -r 1s)
+fi
+
+echo "Running benchmarks, results go to $RESULT_FILE"
+java "${JVM_OPTS[@]}" -jar benchmarks/target/benchmarks.jar "${JMH_OPTS[@]}" "$@"
@@ -0,0 +1,33 @@
+#!/bin/bash
+
+# Concurrent booking load against a seeded fleet, see BookingLoadSimulator for the options
+#
+#   ./run-load-simulation.sh                                        32 agents flat out for 60 s
+#   ./run-load-simulation.sh --agents=64 --rate=500 --contention=0.8 --duration=120
+#   ./run-load-simulation.sh --json=benchmarks/results/load.json   also write the report as JSON
+#
+# Like run-benchmarks.sh it starts a PostgreSQL container (Docker is required), or runs against an
+# existing scratch database, whose tables are emptied:
+#
+#   BENCHMARK_JDBC_URL=jdbc:postgresql://localhost:15432/car_rental_bench ./run-load-simulation.sh
+
+set -e
+
+if ! command -v mvn &>/dev/null; then
+  echo "Error: Maven is not installed. Please install Maven 3.6.0 or higher."
+  exit 1
+fi
+
+cd "$(dirname "$0")"
+
+echo "Building benchmarks..."
+mvn -q -pl benchmarks -am package -DskipTests
+
+JVM_OPTS=()
+if [ -n "$BENCHMARK_JDBC_URL" ]; then
+  JVM_OPTS+=("-Dbenchmark.jdbc.url=$BENCHMARK_JDBC_URL"
+             "-Dbenchmark.jdbc.username=${BENCHMARK_JDBC_USERNAME:-admin}"
+             "-Dbenchmark.jdbc.password=${BENCHMARK_JDBC_PASSWORD:-admin}")
+fi
+
+java "${JVM_OPTS[@]}" -cp benchmarks/target/benchmarks.jar cz.muni.fi.pv168.benchmarks.BookingLoadSimulator "$@"